@@ -7,18 +7,22 @@ import java.nio.channels.FileChannel;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
-import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.FutureTask;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import javafx.animation.Animation;
 import javafx.animation.FadeTransition;
 import javafx.animation.RotateTransition;
+import javafx.application.Platform;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleObjectProperty;
+import javafx.collections.FXCollections;
 import javafx.concurrent.Task;
+import javafx.geometry.Bounds;
+import javafx.scene.Node;
 import javafx.scene.control.Pagination;
 import javafx.scene.control.TreeItem;
 import javafx.stage.FileChooser;
@@ -30,22 +34,35 @@ import org.jooq.lambda.Unchecked;
 import com.jfoenix.controls.JFXButton;
 import com.jfoenix.controls.JFXComboBox;
 import com.jfoenix.controls.JFXTextField;
-import com.jfoenix.controls.JFXTreeTableView;
-import com.jfoenix.controls.datamodels.treetable.RecursiveTreeObject;
 
 import stockanalysis.model.Analyzer;
-import stockanalysis.model.StockPrice;
-import stockanalysis.model.StockPriceCrashCycle;
+import stockanalysis.model.CrashCycleMembership;
+import stockanalysis.model.CrashCycleRows;
+import stockanalysis.model.MinMaxPyramid;
+import stockanalysis.model.PriceSeries;
 import stockanalysis.model.Tuple;
 import stockanalysis.util.ChartSaver;
 import stockanalysis.util.Util;
 import stockanalysis.view.StockAnalysisPane;
 
 public class Controller {
+
+	private static final double ZOOM_FACTOR = 0.8;
+	private static final int MIN_VIEWPORT_SIZE = 10;
 	
-    private Analyzer analyzer;
     private ObjectProperty<List<Tuple>> tupleProperty;
-	private List<StockPrice> data;
+	private PriceSeries data;
+	private Task<Analysis> analyzeTask;
+	private CrashCycleMembership crashCycleMembership;
+	private Task<CrashCycleMembership> tableModelTask;
+
+	// What the chart shows, the pyramid is built once per parsed series
+	private MinMaxPyramid pyramid;
+	private MinMaxPyramid chartPyramid;
+	private List<Tuple> chartTuples;
+	private int viewFrom, viewTo;
+	private double dragSceneX;
+	private int dragViewFrom;
 
 	private Stage stage;
 	private StockAnalysisPane root;
@@ -54,25 +71,16 @@ public class Controller {
 		this.stage = stage;
 		this.root = root;
 
-		analyzer = new Analyzer();
 		tupleProperty = new SimpleObjectProperty<>();
 	}
 
 	public void init() {
 		tupleProperty.addListener((obs, oldValue, newValue) -> {
-			// Update save analysis button
-			root.saveAnalysisBtn.setDisable(newValue.isEmpty());
-
-			// Update save chart button
-			root.saveChartBtn.setDisable(newValue.isEmpty());
-
 			// Update total number label
 			root.totalLbl.setText("Total: " + newValue.size());
 
-			// Update all tables
-			updateAnalysisTable(newValue);
-			updateCrashCycleTable(newValue, root.crashCycleTableWithPeak);
-			updateCrashCycleTable(newValue, root.crashCycleTableWithCrash);
+			// Update all tables in the background, the save buttons wait for them
+			updateTables(newValue);
 		});
 
 		// Configure RadioButton
@@ -102,30 +110,22 @@ public class Controller {
 			FileChooser fileChooser = createFileChooser("Save Analysis Result", "analysis.csv", Util.CSV_FILE_EXTENSION_FILTER);
 			Optional.ofNullable(fileChooser.showSaveDialog(stage))
 				.ifPresent(file -> {
+					// Export what the tables show, straight from the analyzed data
+					List<Tuple> tuples = tupleProperty.get();
+					CrashCycleMembership membership = crashCycleMembership;
+					boolean analysisTableSelected = root.analysisTableRBtn.isSelected();
+					boolean withPeakSelected = root.crashCycleTableWithPeakRBtn.isSelected();
+
 					Task<Void> saveTask = new Task<>() {
 						@Override
 						protected Void call() throws Exception {
-							String csvHeader = "";
-
 							// According to the selected table to save csv file
-							if (root.analysisTableRBtn.isSelected()) {
-								List<Tuple> tuples = getDataFromTreeTable(root.analysisTable);
-								csvHeader = "Crash Identification Date, " +
-								   "Peak Date, " +
-								   "Index at Peak, " +
-								   "Trough Date, " +
-								   "Index at Trough, " +
-								   "Peak-to-Trough decline(%), " +
-								   "Peak-to-Trough duration(in days)";
-
-								Util.saveAnalysisResult(tuples, csvHeader, Util::convertTuple, file.toPath());
+							if (analysisTableSelected) {
+								Util.saveAnalysisResult(tuples, file.toPath());
+							} else if (withPeakSelected) {
+								Util.saveCrashCycles(membership, file.toPath(), null);
 							} else {
-								List<StockPriceCrashCycle> spccs = root.crashCycleTableWithPeakRBtn.isSelected() ?
-									getDataFromTreeTable(root.crashCycleTableWithPeak) :
-									getDataFromTreeTable(root.crashCycleTableWithCrash);
-								csvHeader = "Date, Index, In Crash Cycle";
-
-								Util.saveAnalysisResult(spccs, csvHeader, Util::convertStockPriceCrashCycle, file.toPath());
+								Util.saveCrashCycles(membership, null, file.toPath());
 							}
 
 							return null;
@@ -141,7 +141,7 @@ public class Controller {
 		});
 
 		root.selectFileBtn.setOnAction(e -> {
-			FileChooser fileChooser = createFileChooser("Select CSV File", "", Util.CSV_FILE_EXTENSION_FILTER);
+			FileChooser fileChooser = createFileChooser("Select CSV File", "", Util.CSV_FILE_EXTENSION_FILTER, Util.COMPRESSED_CSV_FILE_EXTENSION_FILTER);
 			Optional.ofNullable(fileChooser.showOpenDialog(stage))
 				.ifPresent(file -> root.filePathInput.setText(file.getPath()));
 		});
@@ -154,31 +154,48 @@ public class Controller {
 				double crashRate = Double.parseDouble(crashRateInput.getText()) / 100;
 				String path = filePathInput.getText();
 				Function<String, Path> convertToRealPath = Unchecked.function(p -> Paths.get(p).toRealPath());
-				data = Util.parseData(convertToRealPath.apply(path));
-
-				analyzer.setCrashRate(crashRate);
-				analyzer.setData(data);
 
-				Task<List<Tuple>> analyzeTask = new Task<>() {
+				// The tuples index the series they were found in, so the series and its
+				// pyramid are only published together with them
+				Optional.ofNullable(analyzeTask).ifPresent(Task::cancel);
+				Task<Analysis> task = new Task<>() {
 					@Override
-					protected List<Tuple> call() throws Exception {
-						return analyzer.getAnalysisResult();
+					protected Analysis call() throws Exception {
+						PriceSeries data = Util.loadData(convertToRealPath.apply(path));
+						List<Tuple> tuples = new Analyzer(crashRate, data).getAnalysisResult();
+
+						return new Analysis(data, new MinMaxPyramid(data), tuples);
 					}
 				};
-				analyzeTask.exceptionProperty().addListener((obs, oldValue, newValue) -> newValue.printStackTrace());
-				analyzeTask.setOnRunning(event -> root.progressBar.setProgress(-1));
-				analyzeTask.setOnSucceeded(event -> {
+				task.exceptionProperty().addListener((obs, oldValue, newValue) -> newValue.printStackTrace());
+				task.setOnRunning(event -> root.progressBar.setProgress(-1));
+				task.setOnSucceeded(event -> {
+					// An older analysis may still finish after a newer one started
+					if (analyzeTask != task) {
+						return;
+					}
+
 					root.progressBar.setProgress(0);
-					tupleProperty.set(analyzeTask.getValue());
+					Analysis analysis = task.getValue();
+					data = analysis.data;
+					pyramid = analysis.pyramid;
+					tupleProperty.set(analysis.tuples);
+				});
+				task.setOnFailed(event -> {
+					if (analyzeTask == task) {
+						root.progressBar.setProgress(0);
+					}
 				});
+				analyzeTask = task;
 
-				Thread thread = new Thread(analyzeTask);
+				Thread thread = new Thread(task);
 				thread.setDaemon(true);
 				thread.start();
 			}
 		});
 
 		setRefreshBtnBehavior();
+		setChartNavigation();
 
 		root.saveChartBtn.setOnAction(e -> {
 			JFXTextField widthInput = root.widthInput;
@@ -214,14 +231,6 @@ public class Controller {
 		return fileChooser;
 	}
 
-	private <T extends RecursiveTreeObject<T>> List<T> getDataFromTreeTable(JFXTreeTableView<T> treeTable) {
-		return treeTable.getRoot()
-			.getChildren()
-			.stream()
-			.map(TreeItem::getValue)
-			.collect(Collectors.toList());
-	}
-
 	private void setRefreshBtnBehavior() {
 		JFXButton refreshBtn = root.refreshBtn;
 
@@ -260,13 +269,34 @@ public class Controller {
 
 			Pagination pagination = root.pagination;
 
+			chartPyramid = pyramid;
+			chartTuples = newTuples;
+
+			// The chart not shown doesn't keep the points of an old series
+			if (root.canvasChartTgl.isSelected()) {
+				root.chart.getData().get(0).getData().clear();
+				root.canvasChart.setData(chartPyramid, chartTuples);
+
+				// Otherwise the table task shades them once it's done
+				if (crashCycleMembership != null && crashCycleMembership.getData() == chartPyramid.getData()) {
+					root.canvasChart.setCrashCycles(crashCycleMembership);
+				}
+			} else {
+				root.canvasChart.clear();
+			}
+
+			// A page is where zooming and panning start from
 			pagination.setPageFactory(i -> {
-				Util.updateChart(drawnDataNumber, i, root.chart, newTuples, data, true);
-				return root.chart;
+				int size = chartPyramid.getData().size();
+				int from = Math.min(drawnDataNumber * i, size);
+				setViewport(from, Math.min(drawnDataNumber, size - from));
+				drawChart();
+				return root.canvasChartTgl.isSelected() ? root.canvasChart : root.chart;
 			});
 
-			int pageCount = data.size() / drawnDataNumber;
-			pageCount = (data.size() % drawnDataNumber == 0) ? pageCount : pageCount + 1;
+			int size = chartPyramid.getData().size();
+			int pageCount = size / drawnDataNumber;
+			pageCount = (size % drawnDataNumber == 0) ? pageCount : pageCount + 1;
 			pagination.setPageCount(pageCount);
 
 			pagination.setCurrentPageIndex(0);
@@ -274,47 +304,196 @@ public class Controller {
 		}
 	}
 
-	private void updateAnalysisTable(List<Tuple> newTuples) {
+	private void setChartNavigation() {
+		root.canvasChartTgl.setOnAction(e -> Optional.ofNullable(tupleProperty.get()).ifPresent(this::updatePagination));
+
+		for (Node chart : new Node[] { root.chart, root.canvasChart }) {
+			setChartNavigation(chart);
+		}
+	}
+
+	private void setChartNavigation(Node chart) {
+		// Scrolling zooms in and out around the day under the cursor
+		chart.setOnScroll(e -> {
+			if (chartPyramid == null || e.getDeltaY() == 0) {
+				return;
+			}
+
+			int size = chartPyramid.getData().size();
+			int length = viewTo - viewFrom;
+			double zoom = e.getDeltaY() > 0 ? ZOOM_FACTOR : 1 / ZOOM_FACTOR;
+			int newLength = Math.max(Math.min((int) Math.round(length * zoom), size), Math.min(MIN_VIEWPORT_SIZE, size));
+
+			double fraction = getPlotFraction(e.getSceneX());
+			int anchor = viewFrom + (int) Math.round(fraction * length);
+
+			if (setViewport(anchor - (int) Math.round(fraction * newLength), newLength)) {
+				drawChart();
+			}
+			e.consume();
+		});
+
+		// Dragging pans the days along
+		chart.setOnMousePressed(e -> {
+			dragSceneX = e.getSceneX();
+			dragViewFrom = viewFrom;
+		});
+
+		chart.setOnMouseDragged(e -> {
+			if (chartPyramid == null) {
+				return;
+			}
+
+			int length = viewTo - viewFrom;
+			double days = (dragSceneX - e.getSceneX()) / getPlotBounds().getWidth() * length;
+
+			if (setViewport(dragViewFrom + (int) Math.round(days), length)) {
+				drawChart();
+			}
+		});
+	}
+
+	// Moves the viewport into the series, true if it changed
+	private boolean setViewport(int from, int length) {
+		from = Math.max(Math.min(from, chartPyramid.getData().size() - length), 0);
+
+		if (from == viewFrom && from + length == viewTo) {
+			return false;
+		}
+
+		viewFrom = from;
+		viewTo = from + length;
+		return true;
+	}
+
+	private void drawChart() {
+		if (root.canvasChartTgl.isSelected()) {
+			root.canvasChart.setViewport(viewFrom, viewTo);
+		} else {
+			Util.updateChart(chartPyramid, viewFrom, viewTo, Util.CHART_POINT_BUDGET, root.chart, chartTuples, true);
+		}
+	}
+
+	private Bounds getPlotBounds() {
+		if (root.canvasChartTgl.isSelected()) {
+			return root.canvasChart.localToScene(root.canvasChart.getPlotBounds());
+		}
+
+		Node plot = root.chart.lookup(".chart-plot-background");
+		return plot.localToScene(plot.getBoundsInLocal());
+	}
+
+	// Where the scene x falls on the plot, from 0 at its left to 1 at its right
+	private double getPlotFraction(double sceneX) {
+		Bounds bounds = getPlotBounds();
+		return Math.max(Math.min((sceneX - bounds.getMinX()) / bounds.getWidth(), 1), 0);
+	}
+
+	private void updateTables(List<Tuple> newTuples) {
+		Optional.ofNullable(tableModelTask).ifPresent(Task::cancel);
+
+		crashCycleMembership = null;
+		root.saveAnalysisBtn.setDisable(true);
+		root.saveChartBtn.setDisable(true);
+
 		TreeItem<Tuple> rootItem = root.analysisTable.getRoot();
 		rootItem.getChildren().clear();
+		root.crashCycleTableWithPeak.setItems(FXCollections.observableArrayList());
+		root.crashCycleTableWithCrash.setItems(FXCollections.observableArrayList());
+
+		TableModelTask task = new TableModelTask(data, newTuples, rootItem);
+		task.exceptionProperty().addListener((obs, oldValue, newValue) -> newValue.printStackTrace());
+		task.progressProperty().addListener((obs, oldValue, newValue) -> {
+			// Progress of a replaced task may still come in
+			if (tableModelTask == task && task.isRunning()) {
+				root.progressBar.setProgress(newValue.doubleValue());
+			}
+		});
+		task.setOnSucceeded(event -> {
+			root.progressBar.setProgress(0);
+
+			crashCycleMembership = task.getValue();
+			root.crashCycleTableWithPeak.setItems(CrashCycleRows.withPeak(crashCycleMembership));
+			root.crashCycleTableWithCrash.setItems(CrashCycleRows.withCrash(crashCycleMembership));
 
-		newTuples.stream()
-			.map(TreeItem::new)
-			.forEach(rootItem.getChildren()::add);
+			// The canvas chart may already show this analysis
+			if (root.canvasChartTgl.isSelected() && chartTuples == newTuples && crashCycleMembership.getData() == chartPyramid.getData()) {
+				root.canvasChart.setCrashCycles(crashCycleMembership);
+			}
+
+			// Update save analysis button
+			root.saveAnalysisBtn.setDisable(newTuples.isEmpty());
+
+			// Update save chart button
+			root.saveChartBtn.setDisable(newTuples.isEmpty());
+		});
+		task.setOnFailed(event -> root.progressBar.setProgress(0));
+		tableModelTask = task;
+		root.progressBar.setProgress(-1);
+
+		Thread thread = new Thread(task);
+		thread.setDaemon(true);
+		thread.start();
 	}
 
-	private void updateCrashCycleTable(List<Tuple> newTuples, JFXTreeTableView<StockPriceCrashCycle> crashCycleTable) {
-		TreeItem<StockPriceCrashCycle> rootItem = crashCycleTable.getRoot();
-		rootItem.getChildren().clear();
+	private static class Analysis {
 
-		data.stream()
-			.map(sp -> {
-				int inCrashCycle = 0;
-				for (Tuple tuple : newTuples) {
-					LocalDate from = (crashCycleTable == root.crashCycleTableWithPeak) ? tuple.getPeakDate() : tuple.getCrashDate();
-					LocalDate to = tuple.getTroughDate();
-					LocalDate target = sp.getDate();
-
-					// Some tuples don't have trough
-					if (to.equals(LocalDate.MIN)) continue;
-
-					// Crash identification date may be later than trough date
-					if (from.isAfter(to)) {
-						LocalDate tmp = from;
-						from = to;
-						to = tmp;
-					}
+		private final PriceSeries data;
+		private final MinMaxPyramid pyramid;
+		private final List<Tuple> tuples;
 
-					if (Util.checkDateIsBetween(from, to, target)) {
-						inCrashCycle = 1;
-						break;
+		private Analysis(PriceSeries data, MinMaxPyramid pyramid, List<Tuple> tuples) {
+			this.data = data;
+			this.pyramid = pyramid;
+			this.tuples = tuples;
+		}
+	}
+
+	// Prepares the table models of an analysis and fills the analysis table in
+	// batches, so the FX thread only ever adds a batch of ready rows at a time
+	private static class TableModelTask extends Task<CrashCycleMembership> {
+
+		private static final int BATCH_SIZE = 1000;
+
+		private PriceSeries data;
+		private List<Tuple> tuples;
+		private TreeItem<Tuple> rootItem;
+
+		private TableModelTask(PriceSeries data, List<Tuple> tuples, TreeItem<Tuple> rootItem) {
+			this.data = data;
+			this.tuples = tuples;
+			this.rootItem = rootItem;
+		}
+
+		@Override
+		protected CrashCycleMembership call() throws Exception {
+			// The membership takes a pass over the days, each row a step
+			long total = (long) data.size() + tuples.size();
+
+			CrashCycleMembership membership = new CrashCycleMembership(data, tuples);
+			updateProgress(data.size(), total);
+
+			for (int from = 0; from < tuples.size(); from += BATCH_SIZE) {
+				List<TreeItem<Tuple>> batch = tuples.subList(from, Math.min(from + BATCH_SIZE, tuples.size()))
+					.stream()
+					.map(TreeItem::new)
+					.collect(Collectors.toList());
+
+				// A cancelled task is replaced on the FX thread, its pending batch must not land
+				FutureTask<Void> addBatch = new FutureTask<>(() -> {
+					if (!isCancelled()) {
+						rootItem.getChildren().addAll(batch);
 					}
-				}
+				}, null);
+				Platform.runLater(addBatch);
 
-				return new StockPriceCrashCycle(sp, inCrashCycle);
-			})
-			.map(TreeItem::new)
-			.forEach(rootItem.getChildren()::add);
+				// Waiting keeps the queue of the FX thread short, so input events get through
+				addBatch.get();
+				updateProgress(data.size() + from + batch.size(), total);
+			}
+
+			return membership;
+		}
 	}
 
 	private static class SaveChartTask extends Task<Void> {
@@ -322,9 +501,9 @@ public class Controller {
 		private int width, height;
 		private File path;
 		private List<Tuple> tuples;
-		private List<StockPrice> data;
+		private PriceSeries data;
 
-		private SaveChartTask(int width, int height, File path, List<Tuple> tuples, List<StockPrice> data) {
+		private SaveChartTask(int width, int height, File path, List<Tuple> tuples, PriceSeries data) {
 			this.width = width;
 			this.height = height;
 			this.path = path;
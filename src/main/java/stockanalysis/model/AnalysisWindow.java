@@ -0,0 +1,25 @@
+package stockanalysis.model;
+
+import lombok.Value;
+
+// Window sizes in trading days, see Analyzer
+@Value
+public class AnalysisWindow {
+
+	public static final AnalysisWindow DEFAULT_ANALYSIS_WINDOW = new AnalysisWindow(Analyzer.LOCAL_RANGE, Analyzer.TOTAL_DAYS_OF_YEAR);
+
+	// Days on each side of a local peak or trough
+	private int localRange;
+
+	// Days before a crash searched for its peak
+	private int totalDaysOfYear;
+
+	public AnalysisWindow(int localRange, int totalDaysOfYear) {
+		if (localRange < 0 || totalDaysOfYear < 1) {
+			throw new IllegalArgumentException("Invalid window sizes: " + localRange + ", " + totalDaysOfYear);
+		}
+
+		this.localRange = localRange;
+		this.totalDaysOfYear = totalDaysOfYear;
+	}
+}
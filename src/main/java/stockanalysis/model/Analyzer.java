@@ -1,186 +1,390 @@
 package stockanalysis.model;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Deque;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
-import lombok.AllArgsConstructor;
 import lombok.NoArgsConstructor;
 import lombok.NonNull;
 import lombok.Setter;
 import stockanalysis.util.Util;
 
 @NoArgsConstructor
-@AllArgsConstructor
 public class Analyzer {
 	
-	private static final int TOTAL_DAYS_OF_YEAR = 252;
-	private static final int LOCAL_RANGE = 90;
+	static final int TOTAL_DAYS_OF_YEAR = 252;
+	static final int LOCAL_RANGE = 90;
+
+	// Shorter series are searched for local extrema on the calling thread
+	static final int PARALLEL_THRESHOLD = 1 << 18;
+	private static final int CHUNK_SIZE = 1 << 16;
 
 	@Setter
 	private double crashRate;
 
 	@Setter
 	@NonNull
-	private List<StockPrice> data;
+	private AnalysisWindow window = AnalysisWindow.DEFAULT_ANALYSIS_WINDOW;
 
-	public List<Tuple> getAnalysisResult() {
-		Set[] lpsAndlts = findLocalPeaksAndLocalTroughs(LOCAL_RANGE, data);
-		List<Tuple> tuples = findCandidatePeakCrashPairs(TOTAL_DAYS_OF_YEAR, data);
-		tuples = filterSameCandidatePeakTuple(tuples);
-		tuples = filterCandidatePeakCrashPairsWithNoLocalTrough(data, tuples, lpsAndlts);
-		tuples = findTroughs(data, tuples);
+	@Setter
+	@NonNull
+	private PriceSeries data;
 
-		return tuples;
+	public Analyzer(double crashRate, PriceSeries data) {
+		this.crashRate = crashRate;
+		this.data = data;
 	}
 
-	private Set[] findLocalPeaksAndLocalTroughs(int range, List<StockPrice> data) {
-		Set<StockPrice> localPeaks = new HashSet<>();
-		Set<StockPrice> localTroughs = new HashSet<>();
+	public List<Tuple> getAnalysisResult() {
+		BitSet[] lpsAndlts = findLocalPeaksAndLocalTroughs(window.getLocalRange(), data);
+		int[] candidatePeaks = findCandidatePeaks(window.getTotalDaysOfYear(), data);
 
-		for (StockPrice sp : data) {
-			int spIndex = data.indexOf(sp);
-			int from = Math.max(spIndex - range, 0);
-			int to = Math.min(spIndex + (range + 1), data.size());
-			List<StockPrice> subData = data.subList(from, to);
+		return getAnalysisResult(crashRate, candidatePeaks, lpsAndlts, new RangeMinMaxIndex(data));
+	}
 
-			if (isPeak(sp, subData)) {
-				localPeaks.add(sp);
-			}
+	// The local extrema, candidate peaks and range index don't depend on the
+	// crash rate, so they are computed once and shared by every rate
+	public Map<Double, List<Tuple>> getAnalysisResults(double... crashRates) {
+		BitSet[] lpsAndlts = findLocalPeaksAndLocalTroughs(window.getLocalRange(), data);
+		int[] candidatePeaks = findCandidatePeaks(window.getTotalDaysOfYear(), data);
+		RangeMinMaxIndex rangeIndex = new RangeMinMaxIndex(data);
+
+		return DoubleStream.of(crashRates)
+			.distinct()
+			.boxed()
+			.parallel()
+			.collect(Collectors.toMap(Function.identity(),
+				rate -> getAnalysisResult(rate, candidatePeaks, lpsAndlts, rangeIndex),
+				(tuples1, tuples2) -> tuples1,
+				LinkedHashMap::new));
+	}
 
-			if (isTrough(sp, subData)) {
-				localTroughs.add(sp);
-			}
+	// Crash rates from "from" to "to" inclusive, "step" apart. They are
+	// stepped in decimal, so the keys are the doubles of the rates as written,
+	// 0.3 and not 0.30000000000000004
+	public Map<Double, List<Tuple>> getAnalysisResultsBetween(double from, double to, double step) {
+		if (step <= 0 || from > to) {
+			throw new IllegalArgumentException("Invalid crash rate range");
 		}
 
-		return new Set[] { localPeaks, localTroughs };
+		BigDecimal decimalFrom = BigDecimal.valueOf(from);
+		BigDecimal decimalStep = BigDecimal.valueOf(step);
+		int count = BigDecimal.valueOf(to).subtract(decimalFrom).divide(decimalStep, 0, RoundingMode.FLOOR).intValue() + 1;
+		double[] crashRates = IntStream.range(0, count)
+			.mapToDouble(i -> decimalFrom.add(decimalStep.multiply(BigDecimal.valueOf(i))).doubleValue())
+			.toArray();
+
+		return getAnalysisResults(crashRates);
 	}
 
-	private boolean isPeak(StockPrice target, List<StockPrice> data) {
-		for (StockPrice sp : data) {
-			if (sp.getPrice() > target.getPrice()) {
-				return false;
+	// The range index is shared by all windows, the local extrema by windows
+	// of the same local range and the candidate peaks by windows of the same
+	// year length, so every distinct structure is computed only once
+	public Map<AnalysisWindow, List<Tuple>> getMultiWindowAnalysisResults(AnalysisWindow... windows) {
+		RangeMinMaxIndex rangeIndex = new RangeMinMaxIndex(data);
+
+		Map<Integer, BitSet[]> lpsAndltsByRange = Stream.of(windows)
+			.map(AnalysisWindow::getLocalRange)
+			.distinct()
+			.parallel()
+			.collect(Collectors.toMap(Function.identity(), range -> findLocalPeaksAndLocalTroughs(range, data)));
+
+		Map<Integer, int[]> candidatePeaksByRange = Stream.of(windows)
+			.map(AnalysisWindow::getTotalDaysOfYear)
+			.distinct()
+			.parallel()
+			.collect(Collectors.toMap(Function.identity(), range -> findCandidatePeaks(range, data)));
+
+		return Stream.of(windows)
+			.distinct()
+			.parallel()
+			.collect(Collectors.toMap(Function.identity(),
+				w -> getAnalysisResult(crashRate,
+					candidatePeaksByRange.get(w.getTotalDaysOfYear()),
+					lpsAndltsByRange.get(w.getLocalRange()),
+					rangeIndex),
+				(tuples1, tuples2) -> tuples1,
+				LinkedHashMap::new));
+	}
+
+	// A peak is counted at every crash rate up to the highest threshold of its
+	// candidate crashes, provided it has a local trough before it. Whether a
+	// tuple survives doesn't depend on the crash rate otherwise, so sorting
+	// those thresholds gives the exact crash count of any crash rate.
+	public CrashRateSensitivity getCrashRateSensitivity() {
+		BitSet[] lpsAndlts = findLocalPeaksAndLocalTroughs(window.getLocalRange(), data);
+		int[] candidatePeaks = findCandidatePeaks(window.getTotalDaysOfYear(), data);
+		double[] prices = data.getPrices();
+
+		double[] thresholdByPeak = new double[prices.length];
+		Arrays.fill(thresholdByPeak, Double.NaN);
+
+		for (int i = 0; i < candidatePeaks.length; i++) {
+			int candidatePeakIndex = candidatePeaks[i];
+
+			if (candidatePeakIndex >= 0 && prices[candidatePeakIndex] > 0) {
+				double threshold = findCrashRateThreshold(prices[candidatePeakIndex], prices[i]);
+				double peakThreshold = thresholdByPeak[candidatePeakIndex];
+
+				thresholdByPeak[candidatePeakIndex] = Double.isNaN(peakThreshold) ? threshold : Math.max(peakThreshold, threshold);
 			}
 		}
 
-		return true;
+		double[] thresholds = IntStream.range(0, prices.length)
+			.filter(i -> !Double.isNaN(thresholdByPeak[i]))
+			.filter(i -> hasLocalTrough(i, lpsAndlts))
+			.mapToDouble(i -> thresholdByPeak[i])
+			.toArray();
+
+		return new CrashRateSensitivity(thresholds);
 	}
 
-	private boolean isTrough(StockPrice target, List<StockPrice> data) {
-		for (StockPrice sp : data) {
-			if (sp.getPrice() < target.getPrice()) {
-				return false;
-			}
-		}
+	private List<Tuple> getAnalysisResult(double crashRate, int[] candidatePeaks, BitSet[] lpsAndlts, RangeMinMaxIndex rangeIndex) {
+		List<Tuple> tuples = findCandidatePeakCrashPairs(crashRate, candidatePeaks, data);
+		tuples = filterSameCandidatePeakTuple(tuples);
+		tuples = filterCandidatePeakCrashPairsWithNoLocalTrough(tuples, lpsAndlts);
+		tuples = findTroughs(data, rangeIndex, tuples);
 
-		return true;
+		return tuples;
 	}
 
-	private List<Tuple> findCandidatePeakCrashPairs(int range, List<StockPrice> data) {
-		List<Tuple> tuples = new LinkedList<>();
+	private BitSet[] findLocalPeaksAndLocalTroughs(int range, PriceSeries data) {
+		int size = data.size();
+
+		if (size < PARALLEL_THRESHOLD) {
+			BitSet localPeaks = new BitSet();
+			BitSet localTroughs = new BitSet();
+
+			findLocalPeaksAndLocalTroughs(range, data.getPrices(), size, 0, size, localPeaks, localTroughs, 0);
 
-		for (int i = 1; i < data.size(); i++) {
-			int candidatePeakIndex = -1, lastSpLowerThanCurSpIndex = -1;
-			StockPrice candidateCrash = data.get(i), candidatePeak = null;
+			return new BitSet[] { localPeaks, localTroughs };
+		}
+
+		long[] peakWords = new long[(size + 63) >> 6];
+		long[] troughWords = new long[(size + 63) >> 6];
+		ForkJoinPool.commonPool().invoke(new LocalExtremaTask(range, data.getPrices(), 0, size, peakWords, troughWords));
 
-			for (int j = Math.max(i - range, 0); j < i; j++) {
-				StockPrice curSp = data.get(j);
+		return new BitSet[] { BitSet.valueOf(peakWords), BitSet.valueOf(troughWords) };
+	}
+
+	// Sets or clears the bits (i - offset) of the indices [from, to), the
+	// windows only look at the first "size" prices
+	static void findLocalPeaksAndLocalTroughs(int range, double[] prices, int size, int from, int to, BitSet localPeaks, BitSet localTroughs, int offset) {
+		int windowFrom = Math.max(from - range, 0);
+		int windowTo = Math.min(to + range, size);
+
+		// Monotonic deques of indices, the head of each deque is the index of
+		// the highest (lowest) price in the window [i - range, i + range]
+		int[] maxDeque = new int[windowTo - windowFrom], minDeque = new int[windowTo - windowFrom];
+		int maxHead = 0, maxTail = 0, minHead = 0, minTail = 0;
+
+		for (int i = from, j = windowFrom; i < to; i++) {
+			for (; j < Math.min(i + range + 1, size); j++) {
+				while (maxTail > maxHead && prices[maxDeque[maxTail - 1]] <= prices[j]) {
+					maxTail--;
+				}
+				maxDeque[maxTail++] = j;
 
-				if (candidatePeak == null ||
-					candidatePeak.getPrice() <= curSp.getPrice()) {
-					candidatePeakIndex = j;
-					candidatePeak = curSp;
+				while (minTail > minHead && prices[minDeque[minTail - 1]] >= prices[j]) {
+					minTail--;
 				}
+				minDeque[minTail++] = j;
+			}
 
-				lastSpLowerThanCurSpIndex = curSp.getPrice() < candidateCrash.getPrice() ? j : lastSpLowerThanCurSpIndex;
+			while (maxDeque[maxHead] < i - range) {
+				maxHead++;
 			}
 
-			if (candidatePeakIndex > lastSpLowerThanCurSpIndex &&
-				candidatePeak.getPrice() * (1 - crashRate) >= candidateCrash.getPrice()) {
-				tuples.add(new Tuple(candidatePeak, null, candidateCrash));
+			while (minDeque[minHead] < i - range) {
+				minHead++;
+			}
+
+			// No price in the window is higher (lower) than the current one
+			localPeaks.set(i - offset, prices[maxDeque[maxHead]] <= prices[i]);
+			localTroughs.set(i - offset, prices[minDeque[minHead]] >= prices[i]);
+		}
+	}
+
+	// The candidate peak of every day, -1 if the day can't be a crash whatever the crash rate is
+	private int[] findCandidatePeaks(int range, PriceSeries data) {
+		double[] prices = data.getPrices();
+		int[] candidatePeaks = new int[prices.length];
+		CandidatePeakFinder finder = new CandidatePeakFinder(range, prices.length);
+
+		for (int i = 0; i < prices.length; i++) {
+			candidatePeaks[i] = finder.next(prices);
+		}
+
+		return candidatePeaks;
+	}
+
+	private List<Tuple> findCandidatePeakCrashPairs(double crashRate, int[] candidatePeaks, PriceSeries data) {
+		List<Tuple> tuples = new ArrayList<>();
+		double[] prices = data.getPrices();
+
+		for (int i = 0; i < candidatePeaks.length; i++) {
+			int candidatePeakIndex = candidatePeaks[i];
+
+			if (candidatePeakIndex >= 0 && isCrash(prices[candidatePeakIndex], prices[i], crashRate)) {
+				tuples.add(new Tuple(data.get(candidatePeakIndex), null, data.get(i), candidatePeakIndex, -1, i));
 			}
 		}
 		
 		return tuples;
 	}
 
+	static boolean isCrash(double peak, double crash, double crashRate) {
+		return peak * (1 - crashRate) >= crash;
+	}
+
+	// The highest crash rate which still identifies the crash. The estimate is
+	// bracketed and then bisected on the ordered bit patterns of doubles, so the
+	// result agrees with the rounding of isCrash exactly.
+	private double findCrashRateThreshold(double peak, double crash) {
+		double estimate = 1 - crash / peak;
+		double step = Math.ulp(Math.max(1, Math.abs(estimate)));
+		double lower = estimate, upper = estimate;
+
+		for (double d = step; !isCrash(peak, crash, lower); d *= 2) {
+			lower = estimate - d;
+		}
+
+		for (double d = step; isCrash(peak, crash, upper); d *= 2) {
+			upper = estimate + d;
+		}
+
+		long lowerBits = toOrderedBits(lower), upperBits = toOrderedBits(upper);
+		while (upperBits - lowerBits > 1) {
+			long midBits = lowerBits + (upperBits - lowerBits) / 2;
+
+			if (isCrash(peak, crash, fromOrderedBits(midBits))) {
+				lowerBits = midBits;
+			} else {
+				upperBits = midBits;
+			}
+		}
+
+		return fromOrderedBits(lowerBits);
+	}
+
+	private long toOrderedBits(double value) {
+		long bits = Double.doubleToLongBits(value);
+		return bits < 0 ? bits ^ Long.MAX_VALUE : bits;
+	}
+
+	private double fromOrderedBits(long orderedBits) {
+		return Double.longBitsToDouble(orderedBits < 0 ? orderedBits ^ Long.MAX_VALUE : orderedBits);
+	}
+
 	private List<Tuple> filterSameCandidatePeakTuple(List<Tuple> tuples) {
-		Map<StockPrice, List<Tuple>> tuplesByPeak = tuples.stream()
-			.collect(Collectors.groupingBy(Tuple::getPeak));
-
-		List<Tuple> rlt = tuplesByPeak.entrySet()
-			.stream()
-			.map(e -> e.getValue()
-				.stream()
-				.min(Comparator.comparing(Tuple::getCrashDate))
-				.get())
-			.collect(Collectors.toList());
+		Map<Integer, Tuple> tupleByPeak = tuples.stream()
+			.collect(Collectors.toMap(Tuple::getPeakIndex, Function.identity(),
+				BinaryOperator.minBy(Comparator.comparingInt(Tuple::getCrashIndex))));
 
-		return rlt;
+		return new ArrayList<>(tupleByPeak.values());
 	}
 
-	private List<Tuple> filterCandidatePeakCrashPairsWithNoLocalTrough(List<StockPrice> data, List<Tuple> tuples, Set[] lpsAndlts) {
+	private List<Tuple> filterCandidatePeakCrashPairsWithNoLocalTrough(List<Tuple> tuples, BitSet[] lpsAndlts) {
 		List<Tuple> rlt = tuples.stream()
-			.filter(t -> hasLocalTrough(t.getPeak(), data, lpsAndlts))
+			.filter(t -> hasLocalTrough(t.getPeakIndex(), lpsAndlts))
 			.collect(Collectors.toList());
 		
 		return rlt;
 	}
 
-	@SuppressWarnings("unchecked")
-	private boolean hasLocalTrough(StockPrice peak, List<StockPrice> data, Set[] lpsAndlts) {
-		Set<StockPrice> localPeaks = lpsAndlts[0];
-		Set<StockPrice> localTroughs = lpsAndlts[1];
-		int spIndex = data.indexOf(peak);
+	static boolean hasLocalTrough(int peakIndex, BitSet[] lpsAndlts) {
+		BitSet localPeaks = lpsAndlts[0];
+		BitSet localTroughs = lpsAndlts[1];
 
-		for (int i = spIndex - 1; i >= 0; i--) {
-			StockPrice sp = data.get(i);
-			if (localTroughs.contains(sp)) {
-				return true;
-			}
-
-			if (localPeaks.contains(sp)) {
-				break;
-			}
-		}
+		// The nearest local extremum before the peak must be a local trough
+		int localTroughIndex = localTroughs.previousSetBit(peakIndex - 1);
+		int localPeakIndex = localPeaks.previousSetBit(peakIndex - 1);
 
-		return false;
+		return localTroughIndex >= 0 && localTroughIndex >= localPeakIndex;
 	}
 
-	private List<Tuple> findTroughs(List<StockPrice> data, List<Tuple> tuples) {
-		tuples.sort(Comparator.comparing(t -> t.getPeak().getDate()));
+	private List<Tuple> findTroughs(PriceSeries data, RangeMinMaxIndex rangeIndex, List<Tuple> tuples) {
+		if (tuples.isEmpty()) {
+			return tuples;
+		}
+
+		tuples.sort(Comparator.comparingInt(Tuple::getPeakIndex));
 
 		int i = 0;
 		for (; i < tuples.size() - 1; i++) {
-			int peakIndex1 = data.indexOf(tuples.get(i).getPeak());
-			int peakIndex2 = data.indexOf(tuples.get(i + 1).getPeak());
-			StockPrice trough = findTroughInRange(peakIndex1 + 1, peakIndex2, data);
+			int peakIndex1 = tuples.get(i).getPeakIndex();
+			int peakIndex2 = tuples.get(i + 1).getPeakIndex();
+			int troughIndex = rangeIndex.indexOfMin(peakIndex1 + 1, peakIndex2);
+			StockPrice trough = troughIndex < 0 ? StockPrice.DEFAULT_STOCK_PRICE : data.get(troughIndex);
 
-			tuples.get(i).setTrough(trough);
+			tuples.get(i).setTrough(trough, troughIndex);
 		}
 
 		// Last trough will be null, use the default stock price
-		tuples.get(i).setTrough(StockPrice.DEFAULT_STOCK_PRICE);
+		tuples.get(i).setTrough(StockPrice.DEFAULT_STOCK_PRICE, -1);
 
 		return tuples;
 	}
 
-	private StockPrice findTroughInRange(int from, int to, List<StockPrice> data) {
-		return data.subList(from, to)
-			.stream()
-			.min(Comparator.comparingDouble(StockPrice::getPrice))
-			.orElse(StockPrice.DEFAULT_STOCK_PRICE);
+	// Splits the indices into chunks aligned to 64, so every chunk owns whole
+	// words of the result. Each chunk reads LOCAL_RANGE prices on both sides.
+	private static class LocalExtremaTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 18465020L;
+
+		private int range, from, to;
+		private double[] prices;
+		private long[] peakWords, troughWords;
+
+		private LocalExtremaTask(int range, double[] prices, int from, int to, long[] peakWords, long[] troughWords) {
+			this.range = range;
+			this.prices = prices;
+			this.from = from;
+			this.to = to;
+			this.peakWords = peakWords;
+			this.troughWords = troughWords;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= CHUNK_SIZE) {
+				BitSet localPeaks = new BitSet(to - from);
+				BitSet localTroughs = new BitSet(to - from);
+				findLocalPeaksAndLocalTroughs(range, prices, prices.length, from, to, localPeaks, localTroughs, from);
+
+				long[] words = localPeaks.toLongArray();
+				System.arraycopy(words, 0, peakWords, from >> 6, words.length);
+
+				words = localTroughs.toLongArray();
+				System.arraycopy(words, 0, troughWords, from >> 6, words.length);
+
+				return;
+			}
+
+			int mid = ((from + to) >>> 1) & ~63;
+			invokeAll(new LocalExtremaTask(range, prices, from, mid, peakWords, troughWords),
+				new LocalExtremaTask(range, prices, mid, to, peakWords, troughWords));
+		}
 	}
 }
@@ -0,0 +1,62 @@
+package stockanalysis.model;
+
+import java.util.Arrays;
+
+// Finds the candidate peak of each day as the days arrive one by one. The
+// candidate peak is the latest highest price of the window [i - range, i),
+// provided that no price after it in the window is lower than day i.
+class CandidatePeakFinder {
+
+	private final int range;
+
+	// Monotonic deque of indices kept in a ring buffer, the head is the index of
+	// the highest price in the window, the latest one wins when prices are equal
+	private final int[] maxDeque;
+	private int maxHead, maxSize;
+
+	// Monotonic stack of indices, after popping the top is the index of
+	// the nearest previous price lower than the current one
+	private int[] lowerStack;
+	private int lowerTop;
+
+	private int next;
+
+	CandidatePeakFinder(int range, int expectedSize) {
+		this.range = range;
+		this.maxDeque = new int[Math.max(range, 1)];
+		this.lowerStack = new int[Math.max(expectedSize, 16)];
+	}
+
+	// Candidate peak of the next day, -1 if it can't be a crash whatever the
+	// crash rate is. The prices must already hold the price of that day.
+	int next(double[] prices) {
+		int i = next++;
+
+		if (i > 0 && range > 0) {
+			while (maxSize > 0 && maxDeque[maxHead] < i - range) {
+				maxHead = (maxHead + 1) % maxDeque.length;
+				maxSize--;
+			}
+
+			while (maxSize > 0 && prices[maxDeque[(maxHead + maxSize - 1) % maxDeque.length]] <= prices[i - 1]) {
+				maxSize--;
+			}
+			maxDeque[(maxHead + maxSize) % maxDeque.length] = i - 1;
+			maxSize++;
+		}
+
+		while (lowerTop > 0 && prices[lowerStack[lowerTop - 1]] >= prices[i]) {
+			lowerTop--;
+		}
+		int lastSpLowerThanCurSpIndex = lowerTop > 0 ? lowerStack[lowerTop - 1] : -1;
+
+		if (lowerTop == lowerStack.length) {
+			lowerStack = Arrays.copyOf(lowerStack, lowerTop * 2);
+		}
+		lowerStack[lowerTop++] = i;
+
+		// A lower price before the window is also lower than the candidate peak
+		int candidatePeakIndex = maxSize > 0 ? maxDeque[maxHead] : -1;
+		return candidatePeakIndex > lastSpLowerThanCurSpIndex ? candidatePeakIndex : -1;
+	}
+}
@@ -0,0 +1,101 @@
+package stockanalysis.model;
+
+import java.time.LocalDate;
+import java.util.BitSet;
+import java.util.List;
+
+import lombok.Getter;
+
+// Which days of a series are in a crash cycle. A cycle covers the days from
+// its peak (or its crash identification date) to its trough, whichever comes
+// first, both days included. Tuples without trough don't have a cycle.
+public class CrashCycleMembership {
+
+	@Getter
+	private final PriceSeries data;
+
+	private final BitSet withPeak;
+	private final BitSet withCrash;
+
+	// Every cycle adds one at its first day and subtracts one after its last
+	// day, the running sum then counts the cycles covering each day
+	public CrashCycleMembership(PriceSeries data, List<Tuple> tuples) {
+		this.data = data;
+
+		int size = data.size();
+		int[] withPeakDiff = new int[size + 1];
+		int[] withCrashDiff = new int[size + 1];
+
+		for (Tuple tuple : tuples) {
+			LocalDate troughDate = tuple.getTroughDate();
+			if (troughDate.equals(LocalDate.MIN)) {
+				continue;
+			}
+
+			int trough = Math.toIntExact(troughDate.toEpochDay());
+			addCycle(withPeakDiff, Math.toIntExact(tuple.getPeakDate().toEpochDay()), trough);
+			addCycle(withCrashDiff, Math.toIntExact(tuple.getCrashDate().toEpochDay()), trough);
+		}
+
+		withPeak = new BitSet(size);
+		withCrash = new BitSet(size);
+
+		for (int i = 0, peakCycles = 0, crashCycles = 0; i < size; i++) {
+			peakCycles += withPeakDiff[i];
+			crashCycles += withCrashDiff[i];
+
+			if (peakCycles > 0) {
+				withPeak.set(i);
+			}
+			if (crashCycles > 0) {
+				withCrash.set(i);
+			}
+		}
+	}
+
+	public int size() {
+		return data.size();
+	}
+
+	public boolean isInCrashCycleWithPeak(int index) {
+		return withPeak.get(index);
+	}
+
+	public boolean isInCrashCycleWithCrash(int index) {
+		return withCrash.get(index);
+	}
+
+	public BitSet getDaysInCrashCycleWithPeak() {
+		return (BitSet) withPeak.clone();
+	}
+
+	public BitSet getDaysInCrashCycleWithCrash() {
+		return (BitSet) withCrash.clone();
+	}
+
+	private void addCycle(int[] diff, int epochDay1, int epochDay2) {
+		int from = lowerBound(Math.min(epochDay1, epochDay2));
+		int to = lowerBound(Math.max(epochDay1, epochDay2) + 1);
+
+		if (from < to) {
+			diff[from]++;
+			diff[to]--;
+		}
+	}
+
+	// Index of the first day not before the epoch day
+	private int lowerBound(int epochDay) {
+		int from = 0, to = data.size();
+
+		while (from < to) {
+			int mid = (from + to) >>> 1;
+			if (data.getEpochDay(mid) < epochDay) {
+				from = mid + 1;
+			} else {
+				to = mid;
+			}
+		}
+
+		return from;
+	}
+}
@@ -0,0 +1,43 @@
+package stockanalysis.model;
+
+import java.util.Objects;
+import java.util.function.IntPredicate;
+
+import javafx.collections.ObservableListBase;
+
+// Rows of a crash cycle table as a read-only list over the columns of the
+// series and the membership, a row is only created when the table asks for
+// it, so a table shows a series of any length with the memory of its
+// visible rows.
+public class CrashCycleRows extends ObservableListBase<StockPriceCrashCycle> {
+
+	private final PriceSeries data;
+	private final IntPredicate inCrashCycle;
+
+	private CrashCycleRows(PriceSeries data, IntPredicate inCrashCycle) {
+		this.data = data;
+		this.inCrashCycle = inCrashCycle;
+	}
+
+	// Days from the peak to the trough of each cycle
+	public static CrashCycleRows withPeak(CrashCycleMembership membership) {
+		return new CrashCycleRows(membership.getData(), membership::isInCrashCycleWithPeak);
+	}
+
+	// Days from the crash identification date to the trough of each cycle
+	public static CrashCycleRows withCrash(CrashCycleMembership membership) {
+		return new CrashCycleRows(membership.getData(), membership::isInCrashCycleWithCrash);
+	}
+
+	@Override
+	public StockPriceCrashCycle get(int index) {
+		Objects.checkIndex(index, data.size());
+
+		return new StockPriceCrashCycle(data.get(index), inCrashCycle.test(index) ? 1 : 0);
+	}
+
+	@Override
+	public int size() {
+		return data.size();
+	}
+}
@@ -0,0 +1,60 @@
+package stockanalysis.model;
+
+import java.util.Arrays;
+
+// Number of crashes as a step function of the crash rate. The count stays
+// the same on (crashRates[k - 1], crashRates[k]] and drops after crashRates[k].
+public class CrashRateSensitivity {
+
+	// Highest crash rate at which each crash is still identified, ascending
+	private final double[] thresholds;
+
+	private final double[] crashRates;
+	private final int[] crashCounts;
+
+	CrashRateSensitivity(double[] thresholds) {
+		this.thresholds = thresholds.clone();
+		Arrays.sort(this.thresholds);
+
+		int steps = 0;
+		double[] rates = new double[this.thresholds.length];
+		int[] counts = new int[this.thresholds.length];
+
+		for (int i = 0; i < this.thresholds.length; i++) {
+			if (steps > 0 && rates[steps - 1] == this.thresholds[i]) {
+				continue;
+			}
+
+			rates[steps] = this.thresholds[i];
+			counts[steps] = this.thresholds.length - i;
+			steps++;
+		}
+
+		crashRates = Arrays.copyOf(rates, steps);
+		crashCounts = Arrays.copyOf(counts, steps);
+	}
+
+	public int getCrashCount(double crashRate) {
+		int from = 0, to = thresholds.length;
+
+		// Find the first threshold not lower than the crash rate
+		while (from < to) {
+			int mid = (from + to) >>> 1;
+			if (thresholds[mid] < crashRate) {
+				from = mid + 1;
+			} else {
+				to = mid;
+			}
+		}
+
+		return thresholds.length - from;
+	}
+
+	public double[] getCrashRates() {
+		return crashRates.clone();
+	}
+
+	public int[] getCrashCounts() {
+		return crashCounts.clone();
+	}
+}
@@ -0,0 +1,169 @@
+package stockanalysis.model;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import lombok.Getter;
+
+// Keeps the analysis of a series up to date while prices are appended. The
+// result is always the same as Analyzer.getAnalysisResult over the whole series,
+// but appending only revisits the days whose windows reach the new prices.
+public class IncrementalAnalyzer {
+
+	@Getter
+	private final double crashRate;
+
+	@Getter
+	private final AnalysisWindow window;
+
+	private int[] epochDays = new int[1024];
+	private double[] prices = new double[1024];
+	private int size;
+
+	private final BitSet localPeaks = new BitSet();
+	private final BitSet localTroughs = new BitSet();
+	private final CandidatePeakFinder candidatePeakFinder;
+
+	// Peaks of the candidate crashes and the first crash of each peak
+	private final BitSet candidatePeaks = new BitSet();
+	private int[] firstCrashes = new int[1024];
+
+	// Candidate peaks having a local trough before them and the trough after
+	// each of them, the trough of the last peak is -1
+	private final BitSet validPeaks = new BitSet();
+	private int[] troughs = new int[1024];
+
+	public IncrementalAnalyzer(double crashRate) {
+		this(crashRate, AnalysisWindow.DEFAULT_ANALYSIS_WINDOW);
+	}
+
+	public IncrementalAnalyzer(double crashRate, AnalysisWindow window) {
+		this.crashRate = crashRate;
+		this.window = window;
+		this.candidatePeakFinder = new CandidatePeakFinder(window.getTotalDaysOfYear(), 0);
+	}
+
+	public IncrementalAnalyzer(double crashRate, PriceSeries data) {
+		this(crashRate);
+		addAll(data);
+	}
+
+	public void add(StockPrice sp) {
+		int oldSize = size;
+		append(Math.toIntExact(sp.getDate().toEpochDay()), sp.getPrice());
+		update(oldSize);
+	}
+
+	public void addAll(List<StockPrice> data) {
+		int oldSize = size;
+		data.forEach(sp -> append(Math.toIntExact(sp.getDate().toEpochDay()), sp.getPrice()));
+		update(oldSize);
+	}
+
+	public void addAll(PriceSeries data) {
+		int oldSize = size;
+		for (int i = 0; i < data.size(); i++) {
+			append(data.getEpochDay(i), data.getPrice(i));
+		}
+		update(oldSize);
+	}
+
+	public PriceSeries getData() {
+		return new PriceSeries(Arrays.copyOf(epochDays, size), Arrays.copyOf(prices, size));
+	}
+
+	public List<Tuple> getAnalysisResult() {
+		List<Tuple> tuples = new ArrayList<>();
+
+		for (int p = validPeaks.nextSetBit(0); p >= 0; p = validPeaks.nextSetBit(p + 1)) {
+			int troughIndex = troughs[p];
+			int crashIndex = firstCrashes[p];
+			StockPrice trough = troughIndex < 0 ? StockPrice.DEFAULT_STOCK_PRICE : get(troughIndex);
+
+			tuples.add(new Tuple(get(p), trough, get(crashIndex), p, troughIndex, crashIndex));
+		}
+
+		return tuples;
+	}
+
+	private StockPrice get(int index) {
+		return new StockPrice(LocalDate.ofEpochDay(epochDays[index]), prices[index]);
+	}
+
+	private void append(int epochDay, double price) {
+		// Sorting would move earlier days, which needs a full analysis
+		if (size > 0 && epochDay < epochDays[size - 1]) {
+			throw new IllegalArgumentException("Stock prices must be appended in date order");
+		}
+
+		if (size == prices.length) {
+			epochDays = Arrays.copyOf(epochDays, size * 2);
+			prices = Arrays.copyOf(prices, size * 2);
+			firstCrashes = Arrays.copyOf(firstCrashes, size * 2);
+			troughs = Arrays.copyOf(troughs, size * 2);
+		}
+
+		epochDays[size] = epochDay;
+		prices[size] = price;
+		size++;
+	}
+
+	private void update(int oldSize) {
+		if (oldSize == size) {
+			return;
+		}
+
+		// Only the windows of the last localRange days reach the new prices
+		int localRange = window.getLocalRange();
+		int changedFrom = Math.max(oldSize - localRange, 0);
+		Analyzer.findLocalPeaksAndLocalTroughs(localRange, prices, size, changedFrom, size, localPeaks, localTroughs, 0);
+
+		// The backward search for a local trough of earlier peaks ends before the changed days
+		int affectedFrom = changedFrom + 1;
+
+		for (int i = oldSize; i < size; i++) {
+			int candidatePeakIndex = candidatePeakFinder.next(prices);
+
+			// Later crashes of a known peak are filtered out by the Analyzer as well
+			if (candidatePeakIndex >= 0 && !candidatePeaks.get(candidatePeakIndex) &&
+				Analyzer.isCrash(prices[candidatePeakIndex], prices[i], crashRate)) {
+				candidatePeaks.set(candidatePeakIndex);
+				firstCrashes[candidatePeakIndex] = i;
+				affectedFrom = Math.min(affectedFrom, candidatePeakIndex);
+			}
+		}
+
+		int lastSettledPeak = validPeaks.previousSetBit(affectedFrom - 1);
+		int oldNextPeak = validPeaks.nextSetBit(affectedFrom);
+
+		BitSet[] lpsAndlts = new BitSet[] { localPeaks, localTroughs };
+		for (int p = candidatePeaks.nextSetBit(affectedFrom); p >= 0; p = candidatePeaks.nextSetBit(p + 1)) {
+			validPeaks.set(p, Analyzer.hasLocalTrough(p, lpsAndlts));
+		}
+
+		// The trough of the last settled peak only changes when the peak after it does
+		int newNextPeak = validPeaks.nextSetBit(affectedFrom);
+		int p = lastSettledPeak >= 0 && oldNextPeak != newNextPeak ? lastSettledPeak : newNextPeak;
+
+		while (p >= 0) {
+			int nextPeak = validPeaks.nextSetBit(p + 1);
+			troughs[p] = nextPeak < 0 ? -1 : findTroughInRange(p + 1, nextPeak);
+			p = nextPeak;
+		}
+	}
+
+	private int findTroughInRange(int from, int to) {
+		int troughIndex = -1;
+
+		for (int i = from; i < to; i++) {
+			if (troughIndex < 0 || prices[i] < prices[troughIndex]) {
+				troughIndex = i;
+			}
+		}
+
+		return troughIndex;
+	}
+}
@@ -0,0 +1,119 @@
+package stockanalysis.model;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+// Crash cycles of an analysis as sorted, disjoint date intervals, so any date
+// or range of dates is checked with one binary search. Cycles sharing or
+// touching days are merged, both ends of an interval are included.
+public class IntervalIndex {
+
+	// Epoch days, starts[i] <= ends[i] < starts[i + 1] - 1
+	private final int[] starts;
+	private final int[] ends;
+
+	private IntervalIndex(List<Tuple> tuples, Function<Tuple, LocalDate> start) {
+		long[] intervals = tuples.stream()
+			.filter(tuple -> !tuple.getTroughDate().equals(LocalDate.MIN))
+			.mapToLong(tuple -> {
+				long day1 = start.apply(tuple).toEpochDay();
+				long day2 = tuple.getTroughDate().toEpochDay();
+				return Math.min(day1, day2) << 32 | (Math.max(day1, day2) & 0xFFFFFFFFL);
+			})
+			.sorted()
+			.toArray();
+
+		int[] mergedStarts = new int[intervals.length];
+		int[] mergedEnds = new int[intervals.length];
+		int size = 0;
+
+		for (long interval : intervals) {
+			int from = (int) (interval >> 32);
+			int to = (int) interval;
+
+			if (size > 0 && (long) from <= (long) mergedEnds[size - 1] + 1) {
+				mergedEnds[size - 1] = Math.max(mergedEnds[size - 1], to);
+			} else {
+				mergedStarts[size] = from;
+				mergedEnds[size] = to;
+				size++;
+			}
+		}
+
+		starts = Arrays.copyOf(mergedStarts, size);
+		ends = Arrays.copyOf(mergedEnds, size);
+	}
+
+	// Cycles from the peak to the trough of each tuple
+	public static IntervalIndex withPeak(List<Tuple> tuples) {
+		return new IntervalIndex(tuples, Tuple::getPeakDate);
+	}
+
+	// Cycles from the crash identification date to the trough of each tuple
+	public static IntervalIndex withCrash(List<Tuple> tuples) {
+		return new IntervalIndex(tuples, Tuple::getCrashDate);
+	}
+
+	public int size() {
+		return starts.length;
+	}
+
+	public LocalDate getStart(int index) {
+		return LocalDate.ofEpochDay(starts[index]);
+	}
+
+	public LocalDate getEnd(int index) {
+		return LocalDate.ofEpochDay(ends[index]);
+	}
+
+	public boolean contains(LocalDate date) {
+		return indexOf(date) >= 0;
+	}
+
+	// Index of the interval containing the date, -1 if there isn't any
+	public int indexOf(LocalDate date) {
+		long epochDay = date.toEpochDay();
+		int index = lastStartingAtOrBefore(epochDay);
+
+		return index >= 0 && ends[index] >= epochDay ? index : -1;
+	}
+
+	// Whether any day of [from, to] is in a cycle
+	public boolean overlaps(LocalDate from, LocalDate to) {
+		checkRange(from, to);
+		int index = lastStartingAtOrBefore(to.toEpochDay());
+
+		return index >= 0 && ends[index] >= from.toEpochDay();
+	}
+
+	// Whether every day of [from, to] is in a cycle
+	public boolean covers(LocalDate from, LocalDate to) {
+		checkRange(from, to);
+		int index = indexOf(from);
+
+		return index >= 0 && ends[index] >= to.toEpochDay();
+	}
+
+	private int lastStartingAtOrBefore(long epochDay) {
+		int from = 0, to = starts.length;
+
+		while (from < to) {
+			int mid = (from + to) >>> 1;
+			if (starts[mid] <= epochDay) {
+				from = mid + 1;
+			} else {
+				to = mid;
+			}
+		}
+
+		return from - 1;
+	}
+
+	private static void checkRange(LocalDate from, LocalDate to) {
+		if (from.isAfter(to)) {
+			throw new IllegalArgumentException("Invalid date range: " + from + " to " + to);
+		}
+	}
+}
@@ -0,0 +1,123 @@
+package stockanalysis.model;
+
+import java.util.Arrays;
+
+import lombok.Getter;
+
+// Lowest and highest price of every aligned span of 2^k days, for every k up
+// to the whole series. A range of any length is drawn as the lowest and the
+// highest day of a bounded number of spans, taken from the level whose spans
+// are just small enough, so a viewport costs time in the points it shows and
+// not in the days it covers. The levels together hold about one int per day
+// for the lows and one for the highs.
+public class MinMaxPyramid {
+
+	@Getter
+	private final PriceSeries data;
+
+	private final double[] prices;
+
+	// mins[k][b] is the index of the lowest price in [b * 2^k, (b + 1) * 2^k),
+	// level 0 is the series itself and isn't stored
+	private final int[][] mins;
+	private final int[][] maxs;
+
+	public MinMaxPyramid(PriceSeries data) {
+		this.data = data;
+		this.prices = data.getPrices();
+
+		int levels = prices.length <= 1 ? 1 : 33 - Integer.numberOfLeadingZeros(prices.length - 1);
+		mins = new int[levels][];
+		maxs = new int[levels][];
+
+		for (int k = 1; k < levels; k++) {
+			int count = (int) ((prices.length + (1L << k) - 1) >> k);
+			mins[k] = new int[count];
+			maxs[k] = new int[count];
+
+			for (int b = 0; b < count; b++) {
+				int left = 2 * b;
+				int right = Math.min(left + 1, getCount(k - 1) - 1);
+				mins[k][b] = lower(getMin(k - 1, left), getMin(k - 1, right));
+				maxs[k][b] = higher(getMax(k - 1, left), getMax(k - 1, right));
+			}
+		}
+	}
+
+	public int getLevelCount() {
+		return mins.length;
+	}
+
+	// Indices of the lowest and the highest price of at most about maxSpans
+	// spans covering [from, to) in ascending order, every day of the range if
+	// it has no more than 2 * maxSpans days. The spans at the ends of the range
+	// are finer, so nothing outside of it is picked.
+	public int[] select(int from, int to, int maxSpans) {
+		if (maxSpans < 1) {
+			throw new IllegalArgumentException("At least one span must be selected");
+		}
+		if (from < 0 || to > prices.length || from > to) {
+			throw new IndexOutOfBoundsException("Range [" + from + ", " + to + ") out of bounds for length " + prices.length);
+		}
+
+		if (to - from <= 2L * maxSpans) {
+			int[] indices = new int[to - from];
+			Arrays.setAll(indices, i -> from + i);
+			return indices;
+		}
+
+		// The finest level with no more than maxSpans spans in the range
+		int level = 0;
+		while (level < mins.length - 1 && (to - from - 1 >> level) + 1 > maxSpans) {
+			level++;
+		}
+
+		int[] indices = new int[2 * (maxSpans + 2 * level + 2)];
+		int size = 0;
+
+		// Spans grow up to the level at the start of the range and shrink at its end
+		for (int i = from; i < to;) {
+			int k = Math.min(level, Integer.numberOfTrailingZeros(i));
+			while (i + (1L << k) > to) {
+				k--;
+			}
+
+			int b = i >> k;
+			int min = getMin(k, b);
+			int max = getMax(k, b);
+
+			if (size + 2 > indices.length) {
+				indices = Arrays.copyOf(indices, indices.length * 2);
+			}
+			indices[size++] = Math.min(min, max);
+			if (min != max) {
+				indices[size++] = Math.max(min, max);
+			}
+
+			i += 1 << k;
+		}
+
+		return Arrays.copyOf(indices, size);
+	}
+
+	private int getCount(int level) {
+		return level == 0 ? prices.length : mins[level].length;
+	}
+
+	private int getMin(int level, int span) {
+		return level == 0 ? span : mins[level][span];
+	}
+
+	private int getMax(int level, int span) {
+		return level == 0 ? span : maxs[level][span];
+	}
+
+	// Both helpers expect i to lie before j, the earliest day wins on ties
+	private int lower(int i, int j) {
+		return prices[j] < prices[i] ? j : i;
+	}
+
+	private int higher(int i, int j) {
+		return prices[j] > prices[i] ? j : i;
+	}
+}
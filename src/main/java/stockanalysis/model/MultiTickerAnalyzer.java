@@ -0,0 +1,93 @@
+package stockanalysis.model;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import lombok.Getter;
+
+// Analyzes the series of many tickers on a bounded pool of threads, every
+// series with its own Analyzer
+public class MultiTickerAnalyzer {
+
+	@Getter
+	private final double crashRate;
+
+	@Getter
+	private final AnalysisWindow window;
+
+	@Getter
+	private final int parallelism;
+
+	public MultiTickerAnalyzer(double crashRate) {
+		this(crashRate, AnalysisWindow.DEFAULT_ANALYSIS_WINDOW, Runtime.getRuntime().availableProcessors());
+	}
+
+	public MultiTickerAnalyzer(double crashRate, AnalysisWindow window, int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+		}
+
+		this.crashRate = crashRate;
+		this.window = window;
+		this.parallelism = parallelism;
+	}
+
+	// Results in the order of the given tickers
+	public Map<String, List<Tuple>> getAnalysisResults(Map<String, PriceSeries> data) {
+		Map<String, List<Tuple>> results = new LinkedHashMap<>();
+		if (data.isEmpty()) {
+			return results;
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(Math.min(parallelism, data.size()), runnable -> {
+			Thread thread = new Thread(runnable);
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		try {
+			List<Future<List<Tuple>>> futures = new ArrayList<>(data.size());
+			data.values().forEach(series -> futures.add(pool.submit(() -> analyze(series))));
+
+			int i = 0;
+			for (String ticker : data.keySet()) {
+				results.put(ticker, getResult(futures.get(i++)));
+			}
+
+			return results;
+
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	private List<Tuple> analyze(PriceSeries series) {
+		Analyzer analyzer = new Analyzer(crashRate, series);
+		analyzer.setWindow(window);
+
+		return analyzer.getAnalysisResult();
+	}
+
+	private static List<Tuple> getResult(Future<List<Tuple>> future) {
+		try {
+			return future.get();
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for the analysis", e);
+		} catch(ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+}
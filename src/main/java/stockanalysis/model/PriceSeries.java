@@ -0,0 +1,229 @@
+package stockanalysis.model;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+import lombok.AccessLevel;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+// Columnar daily prices, StockPrice objects are only created on demand
+@EqualsAndHashCode
+public class PriceSeries implements Serializable {
+
+	private static final long serialVersionUID = 62781094L;
+
+	@Getter(AccessLevel.PACKAGE)
+	private int[] epochDays;
+
+	@Getter(AccessLevel.PACKAGE)
+	private double[] prices;
+
+	// The arrays are owned by the series afterwards, the caller must not modify them
+	public PriceSeries(int[] epochDays, double[] prices) {
+		if (epochDays.length != prices.length) {
+			throw new IllegalArgumentException("Dates and prices must have the same length");
+		}
+
+		this.epochDays = epochDays;
+		this.prices = prices;
+	}
+
+	public static PriceSeries of(List<StockPrice> data) {
+		int[] epochDays = new int[data.size()];
+		double[] prices = new double[data.size()];
+
+		for (int i = 0; i < data.size(); i++) {
+			StockPrice sp = data.get(i);
+			epochDays[i] = Math.toIntExact(sp.getDate().toEpochDay());
+			prices[i] = sp.getPrice();
+		}
+
+		return new PriceSeries(epochDays, prices);
+	}
+
+	// Merges series sorted by date, prices of the same date keep the order of
+	// the series. Series following each other are only concatenated.
+	public static PriceSeries merge(List<PriceSeries> series) {
+		List<PriceSeries> runs = new ArrayList<>();
+		List<PriceSeries> run = new ArrayList<>();
+
+		for (PriceSeries s : series) {
+			if (s.isEmpty()) {
+				continue;
+			}
+
+			PriceSeries last = run.isEmpty() ? null : run.get(run.size() - 1);
+			if (last != null && last.epochDays[last.size() - 1] > s.epochDays[0]) {
+				runs.add(concat(run));
+				run.clear();
+			}
+			run.add(s);
+		}
+		runs.add(concat(run));
+
+		return mergeRange(runs, 0, runs.size());
+	}
+
+	private static PriceSeries concat(List<PriceSeries> series) {
+		if (series.size() == 1) {
+			return series.get(0);
+		}
+
+		int size = series.stream().mapToInt(PriceSeries::size).sum();
+		int[] epochDays = new int[size];
+		double[] prices = new double[size];
+		int offset = 0;
+
+		for (PriceSeries s : series) {
+			System.arraycopy(s.epochDays, 0, epochDays, offset, s.size());
+			System.arraycopy(s.prices, 0, prices, offset, s.size());
+			offset += s.size();
+		}
+
+		return new PriceSeries(epochDays, prices);
+	}
+
+	private static PriceSeries mergeRange(List<PriceSeries> series, int from, int to) {
+		if (to - from == 1) {
+			return series.get(from);
+		}
+
+		int mid = (from + to) >>> 1;
+		PriceSeries left = mergeRange(series, from, mid);
+		PriceSeries right = mergeRange(series, mid, to);
+
+		int size = left.size() + right.size();
+		int[] epochDays = new int[size];
+		double[] prices = new double[size];
+
+		// The left series wins ties so the merge is stable
+		for (int i = 0, l = 0, r = 0; i < size; i++) {
+			if (r == right.size() || l < left.size() && left.epochDays[l] <= right.epochDays[r]) {
+				epochDays[i] = left.epochDays[l];
+				prices[i] = left.prices[l++];
+			} else {
+				epochDays[i] = right.epochDays[r];
+				prices[i] = right.prices[r++];
+			}
+		}
+
+		return new PriceSeries(epochDays, prices);
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	public int size() {
+		return prices.length;
+	}
+
+	public boolean isEmpty() {
+		return prices.length == 0;
+	}
+
+	public int getEpochDay(int index) {
+		return epochDays[index];
+	}
+
+	public LocalDate getDate(int index) {
+		return LocalDate.ofEpochDay(epochDays[index]);
+	}
+
+	public double getPrice(int index) {
+		return prices[index];
+	}
+
+	public StockPrice get(int index) {
+		return new StockPrice(getDate(index), prices[index]);
+	}
+
+	public List<StockPrice> asList() {
+		return new StockPriceList();
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+	}
+
+	private class StockPriceList extends AbstractList<StockPrice> implements RandomAccess {
+
+		@Override
+		public StockPrice get(int index) {
+			return PriceSeries.this.get(index);
+		}
+
+		@Override
+		public int size() {
+			return PriceSeries.this.size();
+		}
+	}
+
+	public static class Builder {
+
+		private int[] epochDays = new int[1024];
+		private double[] prices = new double[1024];
+		private int size;
+		private boolean sorted = true;
+
+		private Builder() {
+		}
+
+		public Builder add(LocalDate date, double price) {
+			return add(Math.toIntExact(date.toEpochDay()), price);
+		}
+
+		public Builder add(int epochDay, double price) {
+			if (size == prices.length) {
+				epochDays = Arrays.copyOf(epochDays, size * 2);
+				prices = Arrays.copyOf(prices, size * 2);
+			}
+
+			sorted &= size == 0 || epochDays[size - 1] <= epochDay;
+			epochDays[size] = epochDay;
+			prices[size] = price;
+			size++;
+
+			return this;
+		}
+
+		public int size() {
+			return size;
+		}
+
+		// Sorted by date, prices of the same date keep their insertion order
+		public PriceSeries build() {
+			int[] sortedEpochDays = Arrays.copyOf(epochDays, size);
+			double[] sortedPrices = Arrays.copyOf(prices, size);
+
+			if (!sorted) {
+				long[] keys = new long[size];
+				for (int i = 0; i < size; i++) {
+					keys[i] = (long) epochDays[i] << 32 | i;
+				}
+				Arrays.sort(keys);
+
+				for (int i = 0; i < size; i++) {
+					int index = (int) keys[i];
+					sortedEpochDays[i] = epochDays[index];
+					sortedPrices[i] = prices[index];
+				}
+			}
+
+			return new PriceSeries(sortedEpochDays, sortedPrices);
+		}
+	}
+}
@@ -0,0 +1,152 @@
+package stockanalysis.model;
+
+import lombok.Getter;
+
+// Answers "which index holds the lowest (highest) price in [from, to)" in
+// constant time. Prices are split into blocks of 32, a sparse table over the
+// blocks covers the middle of a range and only the two partial blocks at its
+// ends are scanned, so the index stays linear in memory even for long series.
+public class RangeMinMaxIndex {
+
+	private static final int BLOCK_SHIFT = 5;
+	private static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+
+	@Getter
+	private final PriceSeries series;
+
+	private final double[] prices;
+
+	// minTable[k][b] is the index of the lowest price in blocks [b, b + 2^k)
+	private final int[][] minTable;
+	private final int[][] maxTable;
+
+	public RangeMinMaxIndex(PriceSeries series) {
+		this.series = series;
+		this.prices = series.getPrices();
+
+		int blocks = (prices.length + BLOCK_SIZE - 1) >> BLOCK_SHIFT;
+		int levels = blocks == 0 ? 0 : 32 - Integer.numberOfLeadingZeros(blocks);
+		minTable = new int[levels][];
+		maxTable = new int[levels][];
+
+		if (levels == 0) {
+			return;
+		}
+
+		minTable[0] = new int[blocks];
+		maxTable[0] = new int[blocks];
+		for (int b = 0; b < blocks; b++) {
+			int from = b << BLOCK_SHIFT;
+			int to = Math.min(from + BLOCK_SIZE, prices.length);
+			minTable[0][b] = scanMin(from, to);
+			maxTable[0][b] = scanMax(from, to);
+		}
+
+		for (int k = 1; k < levels; k++) {
+			int half = 1 << (k - 1);
+			int count = blocks - (1 << k) + 1;
+			minTable[k] = new int[count];
+			maxTable[k] = new int[count];
+
+			for (int b = 0; b < count; b++) {
+				minTable[k][b] = lower(minTable[k - 1][b], minTable[k - 1][b + half]);
+				maxTable[k][b] = higher(maxTable[k - 1][b], maxTable[k - 1][b + half]);
+			}
+		}
+	}
+
+	// Index of the lowest price in [from, to), the earliest one on ties, -1 if the range is empty
+	public int indexOfMin(int from, int to) {
+		checkRange(from, to);
+
+		int firstBlock = (from + BLOCK_SIZE - 1) >> BLOCK_SHIFT;
+		int lastBlock = to >> BLOCK_SHIFT;
+
+		if (firstBlock >= lastBlock) {
+			return scanMin(from, to);
+		}
+
+		int rlt = scanMin(from, firstBlock << BLOCK_SHIFT);
+		rlt = lower(rlt, queryBlocks(minTable, firstBlock, lastBlock, true));
+		return lower(rlt, scanMin(lastBlock << BLOCK_SHIFT, to));
+	}
+
+	// Index of the highest price in [from, to), the earliest one on ties, -1 if the range is empty
+	public int indexOfMax(int from, int to) {
+		checkRange(from, to);
+
+		int firstBlock = (from + BLOCK_SIZE - 1) >> BLOCK_SHIFT;
+		int lastBlock = to >> BLOCK_SHIFT;
+
+		if (firstBlock >= lastBlock) {
+			return scanMax(from, to);
+		}
+
+		int rlt = scanMax(from, firstBlock << BLOCK_SHIFT);
+		rlt = higher(rlt, queryBlocks(maxTable, firstBlock, lastBlock, false));
+		return higher(rlt, scanMax(lastBlock << BLOCK_SHIFT, to));
+	}
+
+	public double min(int from, int to) {
+		int index = indexOfMin(from, to);
+		return index < 0 ? Double.NaN : prices[index];
+	}
+
+	public double max(int from, int to) {
+		int index = indexOfMax(from, to);
+		return index < 0 ? Double.NaN : prices[index];
+	}
+
+	private int queryBlocks(int[][] table, int from, int to, boolean min) {
+		int k = 31 - Integer.numberOfLeadingZeros(to - from);
+		int left = table[k][from];
+		int right = table[k][to - (1 << k)];
+
+		return min ? lower(left, right) : higher(left, right);
+	}
+
+	private int scanMin(int from, int to) {
+		int rlt = -1;
+		for (int i = from; i < to; i++) {
+			if (rlt < 0 || prices[i] < prices[rlt]) {
+				rlt = i;
+			}
+		}
+
+		return rlt;
+	}
+
+	private int scanMax(int from, int to) {
+		int rlt = -1;
+		for (int i = from; i < to; i++) {
+			if (rlt < 0 || prices[i] > prices[rlt]) {
+				rlt = i;
+			}
+		}
+
+		return rlt;
+	}
+
+	// Both helpers expect i to lie before j whenever both are valid
+	private int lower(int i, int j) {
+		if (i < 0 || j < 0) {
+			return Math.max(i, j);
+		}
+
+		return prices[j] < prices[i] ? j : i;
+	}
+
+	private int higher(int i, int j) {
+		if (i < 0 || j < 0) {
+			return Math.max(i, j);
+		}
+
+		return prices[j] > prices[i] ? j : i;
+	}
+
+	private void checkRange(int from, int to) {
+		if (from < 0 || to > prices.length || from > to) {
+			throw new IndexOutOfBoundsException("Range [" + from + ", " + to + ") out of bounds for length " + prices.length);
+		}
+	}
+}
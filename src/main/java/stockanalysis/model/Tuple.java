@@ -27,6 +27,25 @@ public class Tuple extends RecursiveTreeObject<Tuple> implements Cloneable, Seri
 	private StockPrice trough;
 	private StockPrice crash;
 
+	// Positions in the analyzed data, -1 if unknown
+	@EqualsAndHashCode.Exclude
+	private int peakIndex;
+
+	@EqualsAndHashCode.Exclude
+	private int troughIndex;
+
+	@EqualsAndHashCode.Exclude
+	private int crashIndex;
+
+	public Tuple(StockPrice peak, StockPrice trough, StockPrice crash) {
+		this(peak, trough, crash, -1, -1, -1);
+	}
+
+	public void setTrough(StockPrice trough, int troughIndex) {
+		this.trough = trough;
+		this.troughIndex = troughIndex;
+	}
+
 	public LocalDate getPeakDate() {
 		return peak.getDate();
 	}
@@ -60,7 +79,7 @@ public class Tuple extends RecursiveTreeObject<Tuple> implements Cloneable, Seri
 
 	@Override
 	public Object clone() {
-		return new Tuple(peak, trough, crash);
+		return new Tuple(peak, trough, crash, peakIndex, troughIndex, crashIndex);
 	}
 
 	private void writeObject(ObjectOutputStream out) throws IOException {
@@ -21,7 +21,7 @@ import javax.imageio.ImageIO;
 
 import org.jooq.lambda.Unchecked;
 
-import stockanalysis.model.StockPrice;
+import stockanalysis.model.PriceSeries;
 import stockanalysis.model.Tuple;
 
 public class ChartSaver extends Application {
@@ -29,7 +29,7 @@ public class ChartSaver extends Application {
 	private int width, height;
 	private File path;
 	private List<Tuple> tuples;
-	private List<StockPrice> data;
+	private PriceSeries data;
 
 	@Override
 	public void start(Stage primaryStage) {
@@ -39,8 +39,10 @@ public class ChartSaver extends Application {
 			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, Integer.MAX_VALUE);
 			receiveChartData(buffer);
 
-			LineChart<String, Number> chart = Util.createLineChart();
-			Util.updateChart(data.size(), 0, chart, tuples, data, false);
+			LineChart<Number, Number> chart = Util.createLineChart();
+			// Two points per pixel keep the shape of the whole series
+			int pointBudget = Math.max(Util.CHART_POINT_BUDGET, width * 2);
+			Util.updateChart(data.size(), 0, pointBudget, chart, tuples, data, false);
 
 			Scene scene = new Scene(chart, width, height);
 			scene.getStylesheets().add("/style.css");
@@ -65,7 +67,7 @@ public class ChartSaver extends Application {
 
 		byte[] dataByteArray = new byte[buffer.getInt()];
 		buffer.get(dataByteArray);
-		data = Util.byteArrayToObject(dataByteArray, List.class);
+		data = Util.byteArrayToObject(dataByteArray, PriceSeries.class);
 	}
 
 	private void saveChart(Scene scene) throws IOException {
@@ -0,0 +1,428 @@
+package stockanalysis.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import stockanalysis.model.PriceSeries;
+
+// Reads "date, price, ..." rows straight from the bytes of a memory mapped file.
+// Dates in yyyy/M/d and plain decimal prices are decoded without creating
+// Strings, anything else falls back to the JDK parsers so the result is the
+// same as parsing every row with LocalDate.parse and Double.parseDouble.
+class CsvPriceParser {
+
+	private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy/M/d");
+
+	// A single mapping can't exceed 2GB, longer files are mapped region by region
+	private static final int MAX_REGION_SIZE = Integer.MAX_VALUE;
+
+	// Regions longer than a chunk are parsed in parallel chunks of whole lines
+	private static final int CHUNK_SIZE = 1 << 20;
+
+	private static final int DAYS_0000_TO_1970 = 719528;
+
+	// Mantissas up to 2^53 and powers of ten up to 10^22 are exact doubles,
+	// so a single division gives the correctly rounded value
+	private static final long MAX_EXACT_MANTISSA = 1L << 53;
+	private static final double[] POWERS_OF_TEN = new double[23];
+
+	static {
+		POWERS_OF_TEN[0] = 1;
+		for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+		}
+	}
+
+	private CsvPriceParser() {
+	}
+
+	static PriceSeries parse(Path file) throws IOException {
+		return parse(file, MAX_REGION_SIZE, CHUNK_SIZE);
+	}
+
+	// Every chunk is sorted on its own, chunks of a sorted file are then
+	// only concatenated and the others merged
+	static PriceSeries parse(Path file, int regionSize, int chunkSize) throws IOException {
+		List<PriceSeries> chunks = new ArrayList<>();
+
+		forEachRegion(file, regionSize, (buffer, from, to) -> {
+			if (to - from <= chunkSize) {
+				PriceSeries.Builder builder = PriceSeries.builder();
+				parseLines(buffer, from, to, builder);
+				chunks.add(builder.build());
+			} else {
+				chunks.addAll(ForkJoinPool.commonPool().invoke(new ParseTask(buffer, from, to, chunkSize)));
+			}
+		});
+
+		return PriceSeries.merge(chunks);
+	}
+
+	// Rows of "ticker, date, price, ..." grouped into one series per ticker,
+	// in the order the tickers first appear
+	static Map<String, PriceSeries> parseByTicker(Path file) throws IOException {
+		return parseByTicker(file, MAX_REGION_SIZE);
+	}
+
+	static Map<String, PriceSeries> parseByTicker(Path file, int regionSize) throws IOException {
+		TickerRows rows = new TickerRows();
+		forEachRegion(file, regionSize, rows::parseLines);
+
+		Map<String, PriceSeries> data = new LinkedHashMap<>();
+		rows.builders.forEach((ticker, builder) -> data.put(ticker, builder.build()));
+
+		return data;
+	}
+
+	// Maps the file region by region and hands the whole lines after the header
+	// to the parser, compressed files are streamed through a decompression pipeline
+	private static void forEachRegion(Path file, int regionSize, RegionParser parser) throws IOException {
+		if (DecompressionPipeline.isCompressed(file)) {
+			DecompressionPipeline.forEachBlock(file, parser);
+			return;
+		}
+
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long fileSize = channel.size();
+			long position = 0;
+			boolean header = true;
+
+			while (position < fileSize) {
+				int length = (int) Math.min(fileSize - position, regionSize);
+				ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+				boolean last = position + length == fileSize;
+
+				// Only whole lines are parsed, the rest starts the next region
+				int end = last ? length : lastIndexOfLineBreak(buffer, length) + 1;
+				if (end == 0) {
+					throw new IOException("Line longer than " + regionSize + " bytes at position " + position);
+				}
+
+				int from = 0;
+				if (header) {
+					from = Math.min(indexOfLineBreak(buffer, 0, end) + 1, end);
+					header = false;
+				}
+
+				parser.parse(buffer, from, end);
+				position += end;
+			}
+		}
+	}
+
+	// Parses the lines of [from, to) of the buffer, to is either the end of the
+	// data or just after a line break
+	static void parseLines(ByteBuffer buffer, int from, int to, PriceSeries.Builder builder) {
+		while (from < to) {
+			int lineEnd = indexOfLineBreak(buffer, from, to);
+			parseLine(buffer, from, lineEnd, builder);
+			from = lineEnd + 1;
+		}
+	}
+
+	private static void parseLine(ByteBuffer buffer, int from, int to, PriceSeries.Builder builder) {
+		to = trimEnd(buffer, from, to);
+		if (from == to) {
+			return;
+		}
+
+		int dateEnd = indexOf(buffer, (byte) ',', from, to);
+		if (dateEnd == to) {
+			throw new IllegalArgumentException("Missing price: " + decode(buffer, from, to));
+		}
+
+		int priceFrom = trimStart(buffer, dateEnd + 1, to);
+		int priceEnd = indexOf(buffer, (byte) ',', priceFrom, to);
+
+		int epochDay = parseEpochDay(buffer, from, trimEnd(buffer, from, dateEnd));
+		double price = parsePrice(buffer, priceFrom, trimEnd(buffer, priceFrom, priceEnd));
+		builder.add(epochDay, price);
+	}
+
+	static int parseEpochDay(ByteBuffer buffer, int from, int to) {
+		int yearEnd = from + 4;
+		int monthEnd = digitsEnd(buffer, yearEnd + 1, to, 2);
+		int dayEnd = digitsEnd(buffer, monthEnd + 1, to, 2);
+
+		boolean plain = digitsEnd(buffer, from, to, 4) == yearEnd &&
+			separatorAt(buffer, yearEnd, to) && monthEnd > yearEnd + 1 &&
+			separatorAt(buffer, monthEnd, to) && dayEnd > monthEnd + 1 && dayEnd == to;
+
+		if (plain) {
+			int year = parseDigits(buffer, from, yearEnd);
+			int month = parseDigits(buffer, yearEnd + 1, monthEnd);
+			int day = parseDigits(buffer, monthEnd + 1, dayEnd);
+
+			if (year > 0 && month >= 1 && month <= 12 && day >= 1 && day <= lengthOfMonth(year, month)) {
+				return toEpochDay(year, month, day);
+			}
+		}
+
+		// Let the formatter resolve or reject anything unusual
+		return Math.toIntExact(LocalDate.parse(decode(buffer, from, to), DATE_FORMATTER).toEpochDay());
+	}
+
+	static double parsePrice(ByteBuffer buffer, int from, int to) {
+		int i = from;
+		boolean negative = i < to && buffer.get(i) == '-';
+		if (i < to && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+			i++;
+		}
+
+		long mantissa = 0;
+		int digits = 0, fractionDigits = 0;
+		boolean fraction = false, exact = true;
+
+		for (; i < to; i++) {
+			byte b = buffer.get(i);
+
+			if (b == '.' && !fraction) {
+				fraction = true;
+			} else if (isDigit(b) && mantissa <= (MAX_EXACT_MANTISSA - 9) / 10) {
+				mantissa = mantissa * 10 + b - '0';
+				digits++;
+				fractionDigits += fraction ? 1 : 0;
+			} else {
+				exact = false;
+				break;
+			}
+		}
+
+		if (!exact || digits == 0 || fractionDigits >= POWERS_OF_TEN.length) {
+			return Double.parseDouble(decode(buffer, from, to));
+		}
+
+		double value = mantissa / POWERS_OF_TEN[fractionDigits];
+		return negative ? -value : value;
+	}
+
+	private static int toEpochDay(int year, int month, int day) {
+		int total = 365 * year + (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+		total += (367 * month - 362) / 12 + day - 1;
+
+		if (month > 2) {
+			total -= isLeapYear(year) ? 1 : 2;
+		}
+
+		return total - DAYS_0000_TO_1970;
+	}
+
+	private static int lengthOfMonth(int year, int month) {
+		switch (month) {
+			case 2:
+				return isLeapYear(year) ? 29 : 28;
+			case 4:
+			case 6:
+			case 9:
+			case 11:
+				return 30;
+			default:
+				return 31;
+		}
+	}
+
+	private static boolean isLeapYear(int year) {
+		return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+	}
+
+	private static boolean isDigit(byte b) {
+		return b >= '0' && b <= '9';
+	}
+
+	// Same characters as \s of the regex the rows used to be split with
+	private static boolean isWhitespace(byte b) {
+		return b == ' ' || b == '\t' || b == '\n' || b == 0x0B || b == '\f' || b == '\r';
+	}
+
+	// End of the run of at most maxDigits digits starting at from
+	private static int digitsEnd(ByteBuffer buffer, int from, int to, int maxDigits) {
+		int end = from;
+		while (end < to && end - from < maxDigits && isDigit(buffer.get(end))) {
+			end++;
+		}
+
+		return end;
+	}
+
+	private static int parseDigits(ByteBuffer buffer, int from, int to) {
+		int value = 0;
+		for (int i = from; i < to; i++) {
+			value = value * 10 + buffer.get(i) - '0';
+		}
+
+		return value;
+	}
+
+	private static boolean separatorAt(ByteBuffer buffer, int index, int to) {
+		return index < to && buffer.get(index) == '/';
+	}
+
+	private static int trimStart(ByteBuffer buffer, int from, int to) {
+		while (from < to && isWhitespace(buffer.get(from))) {
+			from++;
+		}
+
+		return from;
+	}
+
+	private static int trimEnd(ByteBuffer buffer, int from, int to) {
+		while (to > from && isWhitespace(buffer.get(to - 1))) {
+			to--;
+		}
+
+		return to;
+	}
+
+	// Index of the first b in [from, to), to if there isn't any
+	static int indexOf(ByteBuffer buffer, byte b, int from, int to) {
+		while (from < to && buffer.get(from) != b) {
+			from++;
+		}
+
+		return from;
+	}
+
+	// Lines end with \n, \r\n or a lone \r like with Files.lines, a \r\n is
+	// taken as two line breaks around an empty line, which is skipped
+
+	// Index of the first line break in [from, to), to if there isn't any
+	static int indexOfLineBreak(ByteBuffer buffer, int from, int to) {
+		while (from < to && !isLineBreak(buffer.get(from))) {
+			from++;
+		}
+
+		return from;
+	}
+
+	// Index of the last line break before to, -1 if there isn't any
+	static int lastIndexOfLineBreak(ByteBuffer buffer, int to) {
+		do {
+			to--;
+		} while (to >= 0 && !isLineBreak(buffer.get(to)));
+
+		return to;
+	}
+
+	private static boolean isLineBreak(byte b) {
+		return b == '\n' || b == '\r';
+	}
+
+	private static String decode(ByteBuffer buffer, int from, int to) {
+		byte[] bytes = new byte[to - from];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = buffer.get(from + i);
+		}
+
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static class ParseTask extends RecursiveTask<List<PriceSeries>> {
+
+		private static final long serialVersionUID = 40721553L;
+
+		private ByteBuffer buffer;
+		private int from, to, chunkSize;
+
+		private ParseTask(ByteBuffer buffer, int from, int to, int chunkSize) {
+			this.buffer = buffer;
+			this.from = from;
+			this.to = to;
+			this.chunkSize = chunkSize;
+		}
+
+		@Override
+		protected List<PriceSeries> compute() {
+			// Split after the first line break past the middle
+			int mid = to - from <= chunkSize ? to : indexOfLineBreak(buffer, (from + to) >>> 1, to) + 1;
+
+			if (mid >= to) {
+				PriceSeries.Builder builder = PriceSeries.builder();
+				parseLines(buffer, from, to, builder);
+
+				List<PriceSeries> chunks = new ArrayList<>();
+				chunks.add(builder.build());
+				return chunks;
+			}
+
+			ParseTask right = new ParseTask(buffer, mid, to, chunkSize);
+			right.fork();
+
+			List<PriceSeries> chunks = new ParseTask(buffer, from, mid, chunkSize).compute();
+			chunks.addAll(right.join());
+			return chunks;
+		}
+	}
+
+	@FunctionalInterface
+	interface RegionParser {
+		void parse(ByteBuffer buffer, int from, int to);
+	}
+
+	private static class TickerRows {
+
+		private final Map<String, PriceSeries.Builder> builders = new LinkedHashMap<>();
+
+		// Rows of a ticker usually follow each other, so the ticker of the
+		// previous row is compared byte by byte before a String is created
+		private byte[] lastTicker = new byte[16];
+		private int lastTickerLength = -1;
+		private PriceSeries.Builder lastBuilder;
+
+		private void parseLines(ByteBuffer buffer, int from, int to) {
+			while (from < to) {
+				int lineEnd = indexOfLineBreak(buffer, from, to);
+				parseLine(buffer, from, trimEnd(buffer, from, lineEnd));
+				from = lineEnd + 1;
+			}
+		}
+
+		private void parseLine(ByteBuffer buffer, int from, int to) {
+			if (from == to) {
+				return;
+			}
+
+			int tickerEnd = indexOf(buffer, (byte) ',', from, to);
+			if (tickerEnd == to) {
+				throw new IllegalArgumentException("Missing date and price: " + decode(buffer, from, to));
+			}
+
+			PriceSeries.Builder builder = getBuilder(buffer, from, trimEnd(buffer, from, tickerEnd));
+			CsvPriceParser.parseLine(buffer, trimStart(buffer, tickerEnd + 1, to), to, builder);
+		}
+
+		private PriceSeries.Builder getBuilder(ByteBuffer buffer, int from, int to) {
+			int length = to - from;
+			boolean same = length == lastTickerLength;
+
+			for (int i = 0; same && i < length; i++) {
+				same = buffer.get(from + i) == lastTicker[i];
+			}
+
+			if (!same) {
+				if (length > lastTicker.length) {
+					lastTicker = new byte[Math.max(length, lastTicker.length * 2)];
+				}
+				for (int i = 0; i < length; i++) {
+					lastTicker[i] = buffer.get(from + i);
+				}
+
+				lastTickerLength = length;
+				lastBuilder = builders.computeIfAbsent(decode(buffer, from, to), ticker -> PriceSeries.builder());
+			}
+
+			return lastBuilder;
+		}
+	}
+}
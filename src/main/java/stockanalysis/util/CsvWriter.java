@@ -0,0 +1,264 @@
+package stockanalysis.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.DecimalFormatSymbols;
+import java.time.LocalDate;
+import java.util.Formatter;
+import java.util.Locale;
+
+import stockanalysis.model.Tuple;
+
+// Writes the exported rows into one reusable byte buffer that goes to the
+// file channel in large writes. The output is the same as the rows of
+// Util.convertTuple and Util.convertStockPriceCrashCycle written through a
+// BufferedWriter, without creating a Formatter or a String per row.
+public class CsvWriter implements Closeable {
+
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	// Room for a row apart from its Strings, which check the room themselves
+	private static final int ROW_SIZE = 256;
+
+	private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+
+	private static final long[] POWERS_OF_TEN = { 1, 10, 100, 1000, 10000 };
+
+	// Below it the error of value * 10^decimals is far smaller than TIE_MARGIN
+	private static final double MAX_SCALED_VALUE = 1e9;
+	private static final double TIE_MARGIN = 1e-6;
+
+	private final FileChannel channel;
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	private final ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+	private int size;
+
+	// Formatter localizes the digits and the decimal separator of numbers
+	private final char zeroDigit;
+	private final char decimalSeparator;
+
+	// Values close to a rounding tie are left to the Formatter, which rounds
+	// their shortest decimal representation half up
+	private final StringBuilder formatted = new StringBuilder();
+	private final Formatter formatter = new Formatter(formatted);
+
+	public CsvWriter(Path path) throws IOException {
+		channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+
+		DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(Locale.getDefault(Locale.Category.FORMAT));
+		zeroDigit = symbols.getZeroDigit();
+		decimalSeparator = symbols.getDecimalSeparator();
+	}
+
+	public void writeLine(String line) throws IOException {
+		ensureRoom();
+		append(line);
+		newLine();
+	}
+
+	// Same as Util.convertTuple
+	public void writeTuple(Tuple tuple) throws IOException {
+		ensureRoom();
+		LocalDate troughDate = tuple.getTroughDate();
+
+		appendDate(tuple.getCrashDate());
+		append(", ");
+		appendDate(tuple.getPeakDate());
+		append(", ");
+		appendFixed(tuple.getPeakStockPrice(), 2);
+		append(", ");
+
+		// Some tuples don't have trough
+		if (troughDate.equals(LocalDate.MIN)) {
+			append("N/A, N/A, N/A, N/A");
+		} else {
+			appendDate(troughDate);
+			append(", ");
+			appendFixed(tuple.getTroughStockPrice(), 2);
+			append(", ");
+			appendFixed(tuple.getPeakTroughDecline() * 100, 1);
+			append(", ");
+			appendInteger(tuple.getPeakTroughDuration());
+		}
+
+		newLine();
+	}
+
+	// Same as Util.convertStockPriceCrashCycle
+	public void writeCrashCycle(LocalDate date, double price, int inCrashCycle) throws IOException {
+		ensureRoom();
+
+		appendDate(date);
+		append(", ");
+		appendFixed(price, 2);
+		append(", ");
+		appendInteger(inCrashCycle);
+
+		newLine();
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			channel.close();
+		}
+	}
+
+	private void flush() throws IOException {
+		byteBuffer.clear().limit(size);
+		while (byteBuffer.hasRemaining()) {
+			channel.write(byteBuffer);
+		}
+
+		size = 0;
+	}
+
+	private void ensureRoom() throws IOException {
+		if (buffer.length - size < ROW_SIZE) {
+			flush();
+		}
+	}
+
+	private void newLine() {
+		for (byte b : LINE_SEPARATOR) {
+			buffer[size++] = b;
+		}
+	}
+
+	private void append(String s) throws IOException {
+		int length = s.length();
+
+		// UTF-8 takes up to 3 bytes per char
+		if (buffer.length - size < length * 3 + ROW_SIZE / 2) {
+			flush();
+		}
+
+		if (length * 3 > buffer.length - ROW_SIZE) {
+			ByteBuffer bytes = ByteBuffer.wrap(s.getBytes(StandardCharsets.UTF_8));
+			while (bytes.hasRemaining()) {
+				channel.write(bytes);
+			}
+			return;
+		}
+
+		for (int i = 0; i < length; i++) {
+			append(s.charAt(i));
+		}
+	}
+
+	private void append(char c) {
+		if (c < 0x80) {
+			buffer[size++] = (byte) c;
+		} else if (c < 0x800) {
+			buffer[size++] = (byte) (0xC0 | c >> 6);
+			buffer[size++] = (byte) (0x80 | c & 0x3F);
+		} else if (!Character.isSurrogate(c)) {
+			buffer[size++] = (byte) (0xE0 | c >> 12);
+			buffer[size++] = (byte) (0x80 | c >> 6 & 0x3F);
+			buffer[size++] = (byte) (0x80 | c & 0x3F);
+		} else {
+			// Surrogate pairs only occur in text, which is written as a whole
+			byte[] bytes = String.valueOf(c).getBytes(StandardCharsets.UTF_8);
+			System.arraycopy(bytes, 0, buffer, size, bytes.length);
+			size += bytes.length;
+		}
+	}
+
+	// Same as formatting with Util.DATE_FORMATTER, whose week based year only
+	// differs from the year in the days around new year
+	private void appendDate(LocalDate date) throws IOException {
+		int year = date.getYear();
+		int month = date.getMonthValue();
+		int day = date.getDayOfMonth();
+
+		if (year < 1000 || year > 9999 || (month == 12 && day > 24) || (month == 1 && day < 8)) {
+			append(date.format(Util.DATE_FORMATTER));
+			return;
+		}
+
+		appendAsciiDigits(year, 4);
+		buffer[size++] = '/';
+		appendAsciiDigits(month, 2);
+		buffer[size++] = '/';
+		appendAsciiDigits(day, 2);
+	}
+
+	private void appendAsciiDigits(int value, int digits) {
+		for (int i = digits - 1; i >= 0; i--) {
+			buffer[size + i] = (byte) ('0' + value % 10);
+			value /= 10;
+		}
+
+		size += digits;
+	}
+
+	// Same as String.format("%d", value)
+	private void appendInteger(long value) {
+		if (value < 0) {
+			buffer[size++] = '-';
+		}
+
+		appendDigits(Math.abs(value), 1);
+	}
+
+	// Same as String.format("%.<decimals>f", value)
+	private void appendFixed(double value, int decimals) throws IOException {
+		double scaled = Math.abs(value) * POWERS_OF_TEN[decimals];
+		double floor = Math.floor(scaled);
+		double fraction = scaled - floor;
+
+		if (!(scaled < MAX_SCALED_VALUE) || Math.abs(fraction - 0.5) < TIE_MARGIN) {
+			formatted.setLength(0);
+			formatter.format(decimals == 1 ? "%.1f" : "%.2f", value);
+			append(formatted.toString());
+			return;
+		}
+
+		long units = (long) floor + (fraction > 0.5 ? 1 : 0);
+		long pow = POWERS_OF_TEN[decimals];
+
+		// Formatter keeps the sign of values rounding to zero
+		if (Double.compare(value, 0.0) < 0) {
+			buffer[size++] = '-';
+		}
+
+		appendDigits(units / pow, 1);
+		if (decimals > 0) {
+			append(decimalSeparator);
+			appendDigits(units % pow, decimals);
+		}
+	}
+
+	// Digits of a non-negative value in the digits of the locale, at least minDigits of them
+	private void appendDigits(long value, int minDigits) {
+		int digits = 1;
+		for (long v = value / 10; v > 0; v /= 10) {
+			digits++;
+		}
+		digits = Math.max(digits, minDigits);
+
+		if (zeroDigit == '0') {
+			for (int i = digits - 1; i >= 0; i--) {
+				buffer[size + i] = (byte) ('0' + value % 10);
+				value /= 10;
+			}
+			size += digits;
+			return;
+		}
+
+		long divisor = 1;
+		for (int i = 1; i < digits; i++) {
+			divisor *= 10;
+		}
+		for (; divisor > 0; divisor /= 10) {
+			append((char) (zeroDigit + value / divisor % 10));
+		}
+	}
+}
@@ -0,0 +1,214 @@
+package stockanalysis.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPInputStream;
+
+import com.github.luben.zstd.ZstdInputStream;
+
+// Streams a gzip or zstd compressed CSV file without writing it to disk. One
+// thread inflates the file into a few reusable buffers while the calling
+// thread parses the buffers already filled, so memory stays bounded and
+// decompression overlaps with parsing.
+class DecompressionPipeline {
+
+	private static final int BUFFER_SIZE = 1 << 20;
+	private static final int BUFFER_COUNT = 4;
+
+	private static final int GZIP_MAGIC = 0x1F8B;
+	private static final int ZSTD_MAGIC = 0xFD2FB528;
+
+	private DecompressionPipeline() {
+	}
+
+	// Recognized by the magic number, the file name doesn't matter
+	static boolean isCompressed(Path file) throws IOException {
+		return getFormat(file) != Format.NONE;
+	}
+
+	static void forEachBlock(Path file, CsvPriceParser.RegionParser parser) throws IOException {
+		forEachBlock(file, BUFFER_SIZE, parser);
+	}
+
+	// Hands the whole lines after the header to the parser, a line split
+	// between two buffers is put together in a separate one
+	static void forEachBlock(Path file, int bufferSize, CsvPriceParser.RegionParser parser) throws IOException {
+		Format format = getFormat(file);
+		forEachBlock(() -> open(file, format), bufferSize, parser);
+	}
+
+	static void forEachBlock(Source source, int bufferSize, CsvPriceParser.RegionParser parser) throws IOException {
+		BlockingQueue<byte[]> freeBuffers = new ArrayBlockingQueue<>(BUFFER_COUNT);
+		BlockingQueue<Block> filledBlocks = new ArrayBlockingQueue<>(BUFFER_COUNT + 1);
+
+		for (int i = 0; i < BUFFER_COUNT; i++) {
+			freeBuffers.add(new byte[bufferSize]);
+		}
+
+		Thread inflater = new Thread(() -> inflate(source, freeBuffers, filledBlocks), "CSV Inflater");
+		inflater.setDaemon(true);
+		inflater.start();
+
+		try {
+			byte[] line = new byte[256];
+			int lineLength = 0;
+			boolean header = true;
+
+			Block block;
+			while ((block = filledBlocks.take()).buffer != null) {
+				ByteBuffer buffer = ByteBuffer.wrap(block.buffer, 0, block.length);
+				int from = 0;
+
+				// The header and a split line end at the first line break of the buffer
+				if (header || lineLength > 0) {
+					int lineEnd = CsvPriceParser.indexOfLineBreak(buffer, 0, block.length);
+					from = Math.min(lineEnd + 1, block.length);
+
+					if (!header) {
+						if (lineLength + from > line.length) {
+							line = Arrays.copyOf(line, Math.max(lineLength + from, line.length * 2));
+						}
+						System.arraycopy(block.buffer, 0, line, lineLength, from);
+						lineLength += from;
+					}
+
+					if (lineEnd < block.length) {
+						if (!header) {
+							parser.parse(ByteBuffer.wrap(line), 0, lineLength);
+						}
+						header = false;
+						lineLength = 0;
+					}
+				}
+
+				int end = Math.max(CsvPriceParser.lastIndexOfLineBreak(buffer, block.length) + 1, from);
+				parser.parse(buffer, from, end);
+
+				// Keep the unfinished last line for the next buffer
+				if (!header && end < block.length) {
+					int length = block.length - end;
+					if (lineLength + length > line.length) {
+						line = Arrays.copyOf(line, Math.max(lineLength + length, line.length * 2));
+					}
+					System.arraycopy(block.buffer, end, line, lineLength, length);
+					lineLength += length;
+				}
+
+				freeBuffers.put(block.buffer);
+			}
+
+			// What the inflater threw, wrapped unless it is an IOException
+			if (block.exception instanceof IOException) {
+				throw (IOException) block.exception;
+			} else if (block.exception != null) {
+				throw new IOException("Can't inflate the file", block.exception);
+			}
+
+			if (lineLength > 0) {
+				parser.parse(ByteBuffer.wrap(line), 0, lineLength);
+			}
+
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while inflating the file");
+		} finally {
+			inflater.interrupt();
+		}
+	}
+
+	private static void inflate(Source source, BlockingQueue<byte[]> freeBuffers, BlockingQueue<Block> filledBlocks) {
+		Block end = Block.END;
+
+		try(InputStream in = source.open()) {
+			while (true) {
+				byte[] buffer = freeBuffers.take();
+				int length = in.readNBytes(buffer, 0, buffer.length);
+
+				if (length > 0) {
+					filledBlocks.put(new Block(buffer, length, null));
+				}
+				if (length < buffer.length) {
+					break;
+				}
+			}
+		} catch(InterruptedException e) {
+			// The parser gave up
+			return;
+		} catch(Throwable e) {
+			// Like a missing native library of zstd-jni, or a decoder bug
+			end = new Block(null, 0, e);
+		}
+
+		// Never blocks, there is always room for the end after the buffers
+		filledBlocks.add(end);
+	}
+
+	private static InputStream open(Path file, Format format) throws IOException {
+		InputStream in = Files.newInputStream(file);
+
+		try {
+			switch (format) {
+				case GZIP:
+					return new GZIPInputStream(in, 1 << 16);
+				case ZSTD:
+					return new ZstdInputStream(in);
+				default:
+					return in;
+			}
+		} catch(IOException e) {
+			in.close();
+			throw e;
+		}
+	}
+
+	private static Format getFormat(Path file) throws IOException {
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			// A regular file fills the buffer in one read unless it's shorter
+			ByteBuffer magic = ByteBuffer.allocate(4);
+			channel.read(magic);
+
+			if (magic.position() >= 2 && (magic.getShort(0) & 0xFFFF) == GZIP_MAGIC) {
+				return Format.GZIP;
+			}
+			if (magic.position() == 4 && magic.order(ByteOrder.LITTLE_ENDIAN).getInt(0) == ZSTD_MAGIC) {
+				return Format.ZSTD;
+			}
+
+			return Format.NONE;
+		}
+	}
+
+	@FunctionalInterface
+	interface Source {
+		InputStream open() throws IOException;
+	}
+
+	private enum Format {
+		NONE, GZIP, ZSTD
+	}
+
+	private static class Block {
+
+		private static final Block END = new Block(null, 0, null);
+
+		private final byte[] buffer;
+		private final int length;
+		private final Throwable exception;
+
+		private Block(byte[] buffer, int length, Throwable exception) {
+			this.buffer = buffer;
+			this.length = length;
+			this.exception = exception;
+		}
+	}
+}
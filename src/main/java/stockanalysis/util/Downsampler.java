@@ -0,0 +1,127 @@
+package stockanalysis.util;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import stockanalysis.model.PriceSeries;
+
+// Picks the days of a range of a series that keep the shape of its line with
+// Largest-Triangle-Three-Buckets: the range is cut into one bucket per point
+// and each bucket keeps the day spanning the largest triangle with the day
+// kept before it and the average of the next bucket. The first and the last
+// day are always kept, and so are the days of the given sets, like the peaks
+// and the troughs, on top of the budget.
+public class Downsampler {
+
+	private static final int MIN_BUDGET = 3;
+
+	private Downsampler() {
+	}
+
+	// Indices of the kept days in ascending order
+	public static int[] downsample(PriceSeries data, int from, int to, int budget, BitSet... keptDays) {
+		if (budget < MIN_BUDGET) {
+			throw new IllegalArgumentException("The budget must be at least " + MIN_BUDGET + " points");
+		}
+		if (from < 0 || to > data.size() || from > to) {
+			throw new IndexOutOfBoundsException("Range [" + from + ", " + to + ") out of bounds for length " + data.size());
+		}
+
+		if (to - from <= budget) {
+			return rangeOf(from, to);
+		}
+
+		BitSet kept = new BitSet();
+		for (BitSet days : keptDays) {
+			kept.or(days.get(from, to));
+		}
+
+		int[] sampled = largestTriangles(data, from, to, Math.max(budget - kept.cardinality(), MIN_BUDGET));
+
+		return keep(sampled, from, to, keptDays);
+	}
+
+	// Adds the days of the sets in [from, to) to the sorted indices, the days
+	// already in them appear once
+	static int[] keep(int[] sorted, int from, int to, BitSet... keptDays) {
+		BitSet kept = new BitSet();
+		for (BitSet days : keptDays) {
+			kept.or(days.get(from, to));
+		}
+
+		int[] merged = new int[sorted.length + kept.cardinality()];
+		int size = 0;
+		int k = kept.nextSetBit(0);
+
+		for (int s : sorted) {
+			for (; k >= 0 && from + k <= s; k = kept.nextSetBit(k + 1)) {
+				if (from + k < s) {
+					merged[size++] = from + k;
+				}
+			}
+			merged[size++] = s;
+		}
+
+		for (; k >= 0; k = kept.nextSetBit(k + 1)) {
+			merged[size++] = from + k;
+		}
+
+		return Arrays.copyOf(merged, size);
+	}
+
+	private static int[] largestTriangles(PriceSeries data, int from, int to, int count) {
+		int[] sampled = new int[count];
+		double bucketSize = (double) (to - from - 2) / (count - 2);
+
+		int a = from;
+		sampled[0] = from;
+
+		for (int b = 0; b < count - 2; b++) {
+			int bucketFrom = from + 1 + (int) (b * bucketSize);
+			int bucketTo = from + 1 + (int) ((b + 1) * bucketSize);
+
+			// The bucket after the last one is the last day
+			int nextFrom = bucketTo;
+			int nextTo = Math.max(Math.min(from + 1 + (int) ((b + 2) * bucketSize), to), nextFrom + 1);
+
+			// The x of a day is its epoch day, as on the axis of the chart
+			double averageX = 0;
+			double averageY = 0;
+			for (int i = nextFrom; i < nextTo; i++) {
+				averageX += data.getEpochDay(i);
+				averageY += data.getPrice(i);
+			}
+			averageX /= nextTo - nextFrom;
+			averageY /= nextTo - nextFrom;
+
+			double ax = data.getEpochDay(a);
+			double ay = data.getPrice(a);
+			double maxArea = -1;
+			int maxIndex = bucketFrom;
+
+			for (int i = bucketFrom; i < bucketTo; i++) {
+				// Twice the area, only the order matters
+				double area = Math.abs((ax - averageX) * (data.getPrice(i) - ay) - (ax - data.getEpochDay(i)) * (averageY - ay));
+
+				if (area > maxArea) {
+					maxArea = area;
+					maxIndex = i;
+				}
+			}
+
+			sampled[b + 1] = maxIndex;
+			a = maxIndex;
+		}
+
+		sampled[count - 1] = to - 1;
+
+		return sampled;
+	}
+
+	private static int[] rangeOf(int from, int to) {
+		int[] indices = new int[to - from];
+		Arrays.setAll(indices, i -> from + i);
+
+		return indices;
+	}
+}
@@ -0,0 +1,56 @@
+package stockanalysis.util;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javafx.util.StringConverter;
+
+// Labels the ticks of an epoch day axis with Util.DATE_FORMATTER. An axis
+// only asks for the labels of its ticks, and zooming and panning keep asking
+// for the same ones, so the labels are formatted once and kept, up to a
+// bounded number of them.
+public class EpochDayConverter extends StringConverter<Number> {
+
+	private static final int MAX_CACHED_LABELS = 1024;
+
+	private static final DateTimeFormatter CALENDAR_DATE_FORMATTER = DateTimeFormatter.ofPattern("uuuu/MM/dd");
+
+	private final Map<Long, String> labels = new LinkedHashMap<>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, String> eldest) {
+			return size() > MAX_CACHED_LABELS;
+		}
+	};
+
+	// Ticks between two days get the label of the nearest one
+	@Override
+	public String toString(Number epochDay) {
+		if (epochDay == null) {
+			return "";
+		}
+
+		return labels.computeIfAbsent(Math.round(epochDay.doubleValue()),
+			day -> LocalDate.ofEpochDay(day).format(Util.DATE_FORMATTER));
+	}
+
+	// The labels have the week based year of Util.DATE_FORMATTER, which only
+	// differs from the calendar year in the days around new year, where the
+	// date whose label is the string is taken
+	@Override
+	public Number fromString(String string) {
+		if (string == null || string.isEmpty()) {
+			return null;
+		}
+
+		LocalDate date = LocalDate.parse(string, CALENDAR_DATE_FORMATTER);
+		for (LocalDate candidate : new LocalDate[] { date, date.minusYears(1), date.plusYears(1) }) {
+			if (candidate.format(Util.DATE_FORMATTER).equals(string)) {
+				return (double) candidate.toEpochDay();
+			}
+		}
+
+		return (double) date.toEpochDay();
+	}
+}
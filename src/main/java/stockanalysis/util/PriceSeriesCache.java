@@ -0,0 +1,176 @@
+package stockanalysis.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.zip.CRC32;
+
+import stockanalysis.model.PriceSeries;
+
+// Keeps a parsed series in a binary sidecar next to its CSV file, so reopening
+// the file only reads the sidecar instead of parsing the CSV again. The
+// sidecar holds the size and the modified time of the CSV it was written
+// from and is ignored as soon as either of them changes. It is read and
+// written with plain channel reads and writes, not mapped: Windows can't
+// replace or delete a file while a mapping of it is alive, and the garbage
+// collector decides when that is.
+//
+// Layout, little endian:
+//   int magic, int version, long source size, long source modified time,
+//   long CRC32 of the columns, long count,
+//   int[count] epoch days, padding to 8 bytes, double[count] prices
+class PriceSeriesCache {
+
+	static final String SUFFIX = ".cache";
+
+	private static final int MAGIC = 0x53504353;
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 40;
+
+	private PriceSeriesCache() {
+	}
+
+	static PriceSeries load(Path source) throws IOException {
+		// Taken before parsing, a CSV changed meanwhile makes the sidecar stale
+		BasicFileAttributes attrs = Files.readAttributes(source, BasicFileAttributes.class);
+		Path cache = getCachePath(source);
+
+		PriceSeries data = read(cache, attrs);
+		if (data == null) {
+			data = CsvPriceParser.parse(source);
+			write(cache, attrs, data);
+		}
+
+		return data;
+	}
+
+	static Path getCachePath(Path source) {
+		return source.resolveSibling(source.getFileName() + SUFFIX);
+	}
+
+	// Null if the sidecar is missing, stale, damaged or can't be read, the CSV
+	// is then parsed as if there was no sidecar
+	static PriceSeries read(Path cache, BasicFileAttributes attrs) {
+		try(FileChannel channel = FileChannel.open(cache, StandardOpenOption.READ)) {
+			long fileSize = channel.size();
+			if (fileSize < HEADER_SIZE || fileSize > Integer.MAX_VALUE) {
+				return null;
+			}
+
+			ByteBuffer buffer = ByteBuffer.allocate((int) fileSize).order(ByteOrder.LITTLE_ENDIAN);
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer) < 0) {
+					return null;
+				}
+			}
+			buffer.flip();
+
+			if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION ||
+				buffer.getLong() != attrs.size() || buffer.getLong() != attrs.lastModifiedTime().toMillis()) {
+				return null;
+			}
+
+			long checksum = buffer.getLong();
+			long count = buffer.getLong();
+			if (count < 0 || count > Integer.MAX_VALUE || fileSize != getFileSize((int) count)) {
+				return null;
+			}
+
+			buffer.position(HEADER_SIZE);
+			if (checksum(buffer) != checksum) {
+				return null;
+			}
+
+			int[] epochDays = new int[(int) count];
+			double[] prices = new double[(int) count];
+			buffer.position(HEADER_SIZE);
+			buffer.asIntBuffer().get(epochDays);
+			buffer.position((int) getPricesOffset((int) count));
+			buffer.asDoubleBuffer().get(prices);
+
+			return new PriceSeries(epochDays, prices);
+
+		} catch(IOException e) {
+			return null;
+		}
+	}
+
+	// The sidecar is only an optimization, a CSV in a read-only directory just isn't cached
+	static void write(Path cache, BasicFileAttributes attrs, PriceSeries data) {
+		Path temp = null;
+
+		// A single buffer can't exceed 2GB
+		if (getFileSize(data.size()) > Integer.MAX_VALUE) {
+			return;
+		}
+
+		try {
+			temp = Files.createTempFile(cache.toAbsolutePath().getParent(), null, SUFFIX);
+			int count = data.size();
+
+			try(FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+				ByteBuffer buffer = ByteBuffer.allocate((int) getFileSize(count)).order(ByteOrder.LITTLE_ENDIAN);
+
+				buffer.position(HEADER_SIZE);
+				for (int i = 0; i < count; i++) {
+					buffer.putInt(data.getEpochDay(i));
+				}
+
+				buffer.position((int) getPricesOffset(count));
+				for (int i = 0; i < count; i++) {
+					buffer.putDouble(data.getPrice(i));
+				}
+
+				buffer.position(HEADER_SIZE);
+				long checksum = checksum(buffer);
+
+				buffer.position(0);
+				buffer.putInt(MAGIC)
+					.putInt(VERSION)
+					.putLong(attrs.size())
+					.putLong(attrs.lastModifiedTime().toMillis())
+					.putLong(checksum)
+					.putLong(count);
+
+				buffer.rewind();
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+				channel.force(false);
+			}
+
+			// Readers see either the old sidecar or the complete new one
+			Files.move(temp, cache, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+		} catch(IOException | UnsupportedOperationException e) {
+			try {
+				if (temp != null) {
+					Files.deleteIfExists(temp);
+				}
+			} catch(IOException ignored) {
+			}
+		}
+	}
+
+	// CRC32 from the position to the limit of the buffer
+	private static long checksum(ByteBuffer buffer) {
+		CRC32 crc = new CRC32();
+		crc.update(buffer);
+
+		return crc.getValue();
+	}
+
+	private static long getPricesOffset(int count) {
+		return (HEADER_SIZE + 4L * count + 7) & ~7;
+	}
+
+	private static long getFileSize(int count) {
+		return getPricesOffset(count) + 8L * count;
+	}
+}
@@ -16,17 +16,15 @@ import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Formatter;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
 import java.util.function.Function;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
-import javafx.scene.Group;
 import javafx.scene.Node;
-import javafx.scene.chart.CategoryAxis;
 import javafx.scene.chart.LineChart;
 import javafx.scene.chart.NumberAxis;
 import javafx.scene.chart.XYChart;
@@ -36,6 +34,9 @@ import javafx.stage.FileChooser;
 
 import org.jooq.lambda.Unchecked;
 
+import stockanalysis.model.CrashCycleMembership;
+import stockanalysis.model.MinMaxPyramid;
+import stockanalysis.model.PriceSeries;
 import stockanalysis.model.StockPrice;
 import stockanalysis.model.StockPriceCrashCycle;
 import stockanalysis.model.Tuple;
@@ -45,27 +46,53 @@ public class Util {
 	public static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("YYYY/MM/dd");
 	public static final Path TEMP_FILE = Paths.get(System.getProperty("java.io.tmpdir")).resolve("StockAnalysis.tmp");
 
+	public static final String ANALYSIS_RESULT_CSV_HEADER = "Crash Identification Date, " +
+		"Peak Date, " +
+		"Index at Peak, " +
+		"Trough Date, " +
+		"Index at Trough, " +
+		"Peak-to-Trough decline(%), " +
+		"Peak-to-Trough duration(in days)";
+	public static final String CRASH_CYCLE_CSV_HEADER = "Date, Index, In Crash Cycle";
+
+	// Points drawn per page of the chart, larger pages are downsampled
+	public static final int CHART_POINT_BUDGET = 1500;
+
 	public static final FileChooser.ExtensionFilter PNG_FILE_EXTENSION_FILTER = new FileChooser.ExtensionFilter("PNG File", "*.png", "*.PNG");
 	public static final FileChooser.ExtensionFilter CSV_FILE_EXTENSION_FILTER = new FileChooser.ExtensionFilter("CSV File", "*.csv", "*.CSV");
+	public static final FileChooser.ExtensionFilter COMPRESSED_CSV_FILE_EXTENSION_FILTER = new FileChooser.ExtensionFilter("Compressed CSV File", "*.csv.gz", "*.CSV.GZ", "*.csv.zst", "*.CSV.ZST");
 
 	private Util() {
 	}
 
-	public static List<StockPrice> parseData(Path file) {
-		try(Stream<String> lines = Files.lines(file)) {
-			return lines.skip(1)
-				.map(line -> line.split("\\s*,\\s*"))
-				.map(line -> {
-					LocalDate date = LocalDate.parse(line[0], DateTimeFormatter.ofPattern("yyyy/M/d"));
-					double price = Double.parseDouble(line[1]);
-					return new StockPrice(date, price);
-				})
-				.sorted()
-				.collect(Collectors.toUnmodifiableList());
+	public static PriceSeries parseData(Path file) {
+		try {
+			return CsvPriceParser.parse(file);
+		} catch(IOException e) {
+			e.printStackTrace();
+		}
+
+		return null;
+	}
+
+	// Rows of "ticker, date, price" grouped by ticker
+	public static Map<String, PriceSeries> parseDataByTicker(Path file) {
+		try {
+			return CsvPriceParser.parseByTicker(file);
+		} catch(IOException e) {
+			e.printStackTrace();
+		}
+
+		return null;
+	}
 
+	// Same as parseData, but a file parsed before is read from its binary sidecar
+	public static PriceSeries loadData(Path file) {
+		try {
+			return PriceSeriesCache.load(file);
 		} catch(IOException e) {
 			e.printStackTrace();
-		}	
+		}
 
 		return null;
 	}
@@ -75,6 +102,7 @@ public class Util {
 		return (int) (duration.getSeconds() / 60 / 60 / 24);
 	}
 
+	// Only the tests use it now, as the oracle of CrashCycleMembership
 	public static boolean checkDateIsBetween(LocalDate from, LocalDate to, LocalDate target) {
 		// Inclusive
 		return (target.equals(from) || target.equals(to)) || (target.isAfter(from) && target.isBefore(to));
@@ -97,6 +125,55 @@ public class Util {
 		}
 	}
 
+	// Same output as saving with convertTuple, see CsvWriter
+	public static void saveAnalysisResult(List<Tuple> tuples, Path path) {
+		try(CsvWriter out = new CsvWriter(path)) {
+			out.writeLine(ANALYSIS_RESULT_CSV_HEADER);
+
+			for (Tuple tuple : tuples) {
+				out.writeTuple(tuple);
+			}
+
+		} catch(IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	// Writes the crash cycle tables of the series in one pass, the peak based
+	// one counts a cycle from its peak and the crash based one from its crash
+	// identification date. Either path may be null to skip that table.
+	public static void saveCrashCycles(CrashCycleMembership membership, Path withPeakPath, Path withCrashPath) {
+		PriceSeries data = membership.getData();
+
+		try(CsvWriter withPeakOut = withPeakPath == null ? null : new CsvWriter(withPeakPath);
+			CsvWriter withCrashOut = withCrashPath == null ? null : new CsvWriter(withCrashPath)) {
+
+			if (withPeakOut != null) {
+				withPeakOut.writeLine(CRASH_CYCLE_CSV_HEADER);
+			}
+			if (withCrashOut != null) {
+				withCrashOut.writeLine(CRASH_CYCLE_CSV_HEADER);
+			}
+
+			for (int i = 0; i < data.size(); i++) {
+				LocalDate date = data.getDate(i);
+				double price = data.getPrice(i);
+
+				if (withPeakOut != null) {
+					withPeakOut.writeCrashCycle(date, price, membership.isInCrashCycleWithPeak(i) ? 1 : 0);
+				}
+				if (withCrashOut != null) {
+					withCrashOut.writeCrashCycle(date, price, membership.isInCrashCycleWithCrash(i) ? 1 : 0);
+				}
+			}
+
+		} catch(IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	// The converters are no longer used to save, the tests keep them as the
+	// oracle of the lines written by CsvWriter
 	public static String convertTuple(Tuple tuple) {
 		Formatter formatter = new Formatter(new StringBuilder());
 		LocalDate troughDate = tuple.getTroughDate();
@@ -129,22 +206,52 @@ public class Util {
 			spcc.getInCrashCycle());
 	}
 
-	public static LineChart<String, Number> createLineChart() {
-		CategoryAxis xAxis = new CategoryAxis();
+	// Dates are epoch days on a NumberAxis, only the ticks get a label
+	public static LineChart<Number, Number> createLineChart() {
+		NumberAxis xAxis = new NumberAxis();
+		xAxis.setForceZeroInRange(false);
+		xAxis.setTickLabelFormatter(new EpochDayConverter());
 		NumberAxis yAxis = new NumberAxis();
 
-		LineChart<String, Number> chart = new LineChart<>(xAxis, yAxis);
+		// Only the peaks and the troughs get a symbol
+		LineChart<Number, Number> chart = new LineChart<>(xAxis, yAxis);
 		chart.setAnimated(false);
+		chart.setCreateSymbols(false);
 		chart.getData().add(new XYChart.Series<>());
 
 		return chart;
 	}
 
-	public static void updateChart(int drawnDataNumber, int skipFactor, LineChart<String, Number> chart, List<Tuple> newTuples, List<StockPrice> data, boolean tooltip) {
-		Set[] peakTroughs = groupPeaksTroughs(newTuples);
-		List<XYChart.Data<String, Number>> chartData = convertToXYData(drawnDataNumber, skipFactor, data);
+	public static void updateChart(int drawnDataNumber, int skipFactor, LineChart<Number, Number> chart, List<Tuple> newTuples, PriceSeries data, boolean tooltip) {
+		updateChart(drawnDataNumber, skipFactor, Integer.MAX_VALUE, chart, newTuples, data, tooltip);
+	}
+
+	// A page of more than pointBudget days is downsampled to about pointBudget
+	// points, the peaks and the troughs on it are always drawn
+	public static void updateChart(int drawnDataNumber, int skipFactor, int pointBudget, LineChart<Number, Number> chart, List<Tuple> newTuples, PriceSeries data, boolean tooltip) {
+		int from = Math.min(drawnDataNumber * skipFactor, data.size());
+		int to = Math.min(from + drawnDataNumber, data.size());
+
+		BitSet[] peakTroughs = groupPeaksTroughs(newTuples);
+		int[] indices = Downsampler.downsample(data, from, to, pointBudget, peakTroughs);
+
+		setChartData(chart, indices, peakTroughs, data, tooltip);
+	}
+
+	// Draws the days in [from, to) as the lowest and the highest price of the
+	// spans of the pyramid, about pointBudget points whatever the length of
+	// the range, the peaks and the troughs in it are always drawn
+	public static void updateChart(MinMaxPyramid pyramid, int from, int to, int pointBudget, LineChart<Number, Number> chart, List<Tuple> newTuples, boolean tooltip) {
+		BitSet[] peakTroughs = groupPeaksTroughs(newTuples);
+		int[] indices = Downsampler.keep(pyramid.select(from, to, Math.max(pointBudget / 2, 1)), from, to, peakTroughs);
+
+		setChartData(chart, indices, peakTroughs, pyramid.getData(), tooltip);
+	}
+
+	private static void setChartData(LineChart<Number, Number> chart, int[] indices, BitSet[] peakTroughs, PriceSeries data, boolean tooltip) {
+		List<XYChart.Data<Number, Number>> chartData = convertToXYData(indices, data);
 
-		addSymbols(peakTroughs, chartData, tooltip);
+		addSymbols(peakTroughs, indices, data, chartData, tooltip);
 
 		chart.getData()
 			.get(0)
@@ -152,55 +259,45 @@ public class Util {
 			.setAll(chartData);
 	}
 
-	private static Set[] groupPeaksTroughs(List<Tuple> tuples) {
-		Set<StockPrice> peaks = new HashSet<>();
-		Set<StockPrice> troughs = new HashSet<>();
+	// The peak and the trough indices of the tuples, the ones not known are left out
+	public static BitSet[] groupPeaksTroughs(List<Tuple> tuples) {
+		BitSet peaks = new BitSet();
+		BitSet troughs = new BitSet();
 
 		tuples.forEach(tuple -> {
-			peaks.add(tuple.getPeak());
-			troughs.add(tuple.getTrough());
+			// Tuples built without indices have -1
+			if (tuple.getPeakIndex() >= 0) {
+				peaks.set(tuple.getPeakIndex());
+			}
+
+			// Some tuples don't have trough
+			if (tuple.getTroughIndex() >= 0) {
+				troughs.set(tuple.getTroughIndex());
+			}
 		});
 
-		return new Set[]{ peaks, troughs };
+		return new BitSet[]{ peaks, troughs };
 	}
 
-	private static List<XYChart.Data<String, Number>> convertToXYData(int drawnDataNumber, int skipFactor, List<StockPrice> data) {
-		List<XYChart.Data<String, Number>> chartData = data.stream()
-			.skip(drawnDataNumber * skipFactor)
-			.limit(drawnDataNumber)
-			.map(sp -> {
-				String date = sp.getDate().format(Util.DATE_FORMATTER);
-				Number price = sp.getPrice();
-
-				return new XYChart.Data<>(date, price, sp);
-			})
+	private static List<XYChart.Data<Number, Number>> convertToXYData(int[] indices, PriceSeries data) {
+		List<XYChart.Data<Number, Number>> chartData = Arrays.stream(indices)
+			.mapToObj(i -> new XYChart.Data<Number, Number>(data.getEpochDay(i), data.getPrice(i)))
 			.collect(Collectors.toList());
 
 		return chartData;
 	}
 
-	private static void addSymbols(Set[] peakTroughs, List<XYChart.Data<String, Number>> chartData, boolean tooltip) {
-		chartData.forEach(spData -> {
-			StockPrice sp = (StockPrice) spData.getExtraValue();
-			Node symbol;
-
-			if (peakTroughs[0].contains(sp)) {
-				symbol = createSymbol(StockPrice.Type.PEAK, sp, tooltip);
-			} else if (peakTroughs[1].contains(sp)) {
-				symbol = createSymbol(StockPrice.Type.TROUGH, sp, tooltip);
-			} else {
-				symbol = createSymbol(StockPrice.Type.NONE, sp, tooltip);
+	private static void addSymbols(BitSet[] peakTroughs, int[] indices, PriceSeries data, List<XYChart.Data<Number, Number>> chartData, boolean tooltip) {
+		for (int i = 0; i < chartData.size(); i++) {
+			if (peakTroughs[0].get(indices[i])) {
+				chartData.get(i).setNode(createSymbol(StockPrice.Type.PEAK, data.get(indices[i]), tooltip));
+			} else if (peakTroughs[1].get(indices[i])) {
+				chartData.get(i).setNode(createSymbol(StockPrice.Type.TROUGH, data.get(indices[i]), tooltip));
 			}
-
-			spData.setNode(symbol);
-		});
+		}
 	}
 
 	private static Node createSymbol(StockPrice.Type type, StockPrice sp, boolean tooltip) {
-		if (type.equals(StockPrice.Type.NONE)) {
-			return new Group();
-		}
-
 		Circle symbol = new Circle(5);
 		symbol.setOnMouseEntered(e -> symbol.setRadius(6));
 		symbol.setOnMouseExited(e -> symbol.setRadius(5));
@@ -214,11 +311,15 @@ public class Util {
 	}
 
 	private static void installTooltips(Node symbol, StockPrice.Type type, StockPrice sp) {
-		Tooltip tooltip = new Tooltip(String.format("%s: %s%n%s: %s%n%s: %.2f",
+		Tooltip tooltip = new Tooltip(formatTooltip(type, sp));
+		Tooltip.install(symbol, tooltip);
+	}
+
+	public static String formatTooltip(StockPrice.Type type, StockPrice sp) {
+		return String.format("%s: %s%n%s: %s%n%s: %.2f",
 			"Type", type.toString(),
 			"Date", sp.getDate().format(DATE_FORMATTER),
-			"Price", sp.getPrice()));
-		Tooltip.install(symbol, tooltip);
+			"Price", sp.getPrice());
 	}
 
 	public static <T> byte[] objectToByteArray(T obj) throws IOException {
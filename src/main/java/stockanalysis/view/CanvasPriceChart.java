@@ -0,0 +1,342 @@
+package stockanalysis.view;
+
+import java.util.BitSet;
+import java.util.List;
+
+import javafx.geometry.BoundingBox;
+import javafx.geometry.Bounds;
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.Tooltip;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+import javafx.scene.text.TextAlignment;
+
+import stockanalysis.model.CrashCycleMembership;
+import stockanalysis.model.MinMaxPyramid;
+import stockanalysis.model.PriceSeries;
+import stockanalysis.model.StockPrice;
+import stockanalysis.model.Tuple;
+import stockanalysis.util.EpochDayConverter;
+import stockanalysis.util.Util;
+
+// Draws a price series straight onto a Canvas instead of creating a node per
+// point. Every pixel column gets the lowest and the highest price of its days
+// from the pyramid, so a drawing takes time in the width of the chart and not
+// in the number of days shown. Peaks, troughs and the days in a crash cycle
+// are only looked up within the viewport, and the marker under the mouse is
+// found by hit testing the markers near it.
+public class CanvasPriceChart extends Region {
+
+	private static final double PADDING_TOP = 20;
+	private static final double PADDING_RIGHT = 20;
+	private static final double PADDING_BOTTOM = 30;
+	private static final double PADDING_LEFT = 70;
+
+	private static final double MARKER_RADIUS = 5;
+	private static final double HIT_RADIUS = 8;
+	private static final int TICK_COUNT = 5;
+
+	// The colors of the LineChart and of its symbols in style.css
+	private static final Color LINE_COLOR = Color.web("#f3622d");
+	private static final Color PEAK_COLOR = Color.RED;
+	private static final Color TROUGH_COLOR = Color.BLUE;
+	private static final Color CRASH_CYCLE_COLOR = Color.web("#c2e6dd", 0.6);
+	private static final Color GRID_COLOR = Color.web("#e0e0e0");
+	private static final Color LABEL_COLOR = Color.web("#4d4d4d");
+
+	private final Canvas canvas = new Canvas();
+	private final Tooltip tooltip = new Tooltip();
+	private final EpochDayConverter dateLabels = new EpochDayConverter();
+
+	private MinMaxPyramid pyramid;
+	private BitSet peaks = new BitSet();
+	private BitSet troughs = new BitSet();
+	private BitSet crashCycles = new BitSet();
+	private int viewFrom, viewTo;
+
+	// Scales of the last drawing, used by the hit test
+	private double plotWidth, plotHeight;
+	private double minPrice, maxPrice;
+	private int hoveredIndex = -1;
+
+	public CanvasPriceChart() {
+		getStyleClass().add("canvas-price-chart");
+		getChildren().add(canvas);
+
+		// Handlers leave the setters free for zooming and panning
+		addEventHandler(MouseEvent.MOUSE_MOVED, e -> updateTooltip(e.getX(), e.getY(), e.getScreenX(), e.getScreenY()));
+		addEventHandler(MouseEvent.MOUSE_EXITED, e -> hideTooltip());
+		addEventHandler(MouseEvent.MOUSE_DRAGGED, e -> hideTooltip());
+	}
+
+	// Shows the whole series, without shading until the crash cycles are set
+	public void setData(MinMaxPyramid pyramid, List<Tuple> tuples) {
+		this.pyramid = pyramid;
+
+		BitSet[] peakTroughs = Util.groupPeaksTroughs(tuples);
+		peaks = peakTroughs[0];
+		troughs = peakTroughs[1];
+		crashCycles = new BitSet();
+
+		viewFrom = 0;
+		viewTo = pyramid.getData().size();
+		draw();
+	}
+
+	// Shades the crash cycles from the peaks, the membership is built off the
+	// FX thread and must be of the series shown
+	public void setCrashCycles(CrashCycleMembership membership) {
+		if (pyramid == null || membership.getData() != pyramid.getData()) {
+			throw new IllegalArgumentException("The crash cycles must be of the series shown");
+		}
+
+		crashCycles = membership.getDaysInCrashCycleWithPeak();
+		draw();
+	}
+
+	// Lets go of the series, until the next data the chart is empty
+	public void clear() {
+		pyramid = null;
+		peaks = new BitSet();
+		troughs = new BitSet();
+		crashCycles = new BitSet();
+		viewFrom = 0;
+		viewTo = 0;
+		draw();
+	}
+
+	public void setViewport(int from, int to) {
+		if (pyramid == null) {
+			throw new IllegalStateException("The chart has no data");
+		}
+		if (from < 0 || to > pyramid.getData().size() || from > to) {
+			throw new IndexOutOfBoundsException("Range [" + from + ", " + to + ") out of bounds for length " + pyramid.getData().size());
+		}
+
+		viewFrom = from;
+		viewTo = to;
+		draw();
+	}
+
+	// Where the series is drawn, in the coordinates of the chart
+	public Bounds getPlotBounds() {
+		return new BoundingBox(PADDING_LEFT, PADDING_TOP, getPlotWidth(), getPlotHeight());
+	}
+
+	@Override
+	protected void layoutChildren() {
+		if (canvas.getWidth() != getWidth() || canvas.getHeight() != getHeight()) {
+			canvas.setWidth(getWidth());
+			canvas.setHeight(getHeight());
+			draw();
+		}
+	}
+
+	@Override
+	protected double computePrefWidth(double height) {
+		return 500;
+	}
+
+	@Override
+	protected double computePrefHeight(double width) {
+		return 400;
+	}
+
+	private void draw() {
+		GraphicsContext gc = canvas.getGraphicsContext2D();
+		gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+		hideTooltip();
+
+		plotWidth = getPlotWidth();
+		plotHeight = getPlotHeight();
+
+		if (pyramid == null || viewFrom == viewTo) {
+			return;
+		}
+
+		PriceSeries data = pyramid.getData();
+		int[] indices = pyramid.select(viewFrom, viewTo, Math.max((int) plotWidth, 1));
+		updatePriceRange(data, indices);
+
+		drawCrashCycles(gc);
+		drawGrid(gc, data);
+
+		// The lowest and the highest price of each span keep the envelope of the line
+		gc.setStroke(LINE_COLOR);
+		gc.setLineWidth(1.5);
+		gc.beginPath();
+		gc.moveTo(toX(indices[0]), toY(data.getPrice(indices[0])));
+		for (int i = 1; i < indices.length; i++) {
+			gc.lineTo(toX(indices[i]), toY(data.getPrice(indices[i])));
+		}
+		gc.stroke();
+
+		drawMarkers(gc, data, peaks, PEAK_COLOR);
+		drawMarkers(gc, data, troughs, TROUGH_COLOR);
+	}
+
+	private void updatePriceRange(PriceSeries data, int[] indices) {
+		minPrice = Double.POSITIVE_INFINITY;
+		maxPrice = Double.NEGATIVE_INFINITY;
+
+		for (int index : indices) {
+			minPrice = Math.min(minPrice, data.getPrice(index));
+			maxPrice = Math.max(maxPrice, data.getPrice(index));
+		}
+
+		// A flat line is drawn in the middle
+		double margin = minPrice < maxPrice ? (maxPrice - minPrice) * 0.05 : Math.max(Math.abs(minPrice) * 0.05, 1);
+		minPrice -= margin;
+		maxPrice += margin;
+	}
+
+	private void drawCrashCycles(GraphicsContext gc) {
+		gc.setFill(CRASH_CYCLE_COLOR);
+
+		for (int i = crashCycles.nextSetBit(viewFrom); i >= 0 && i < viewTo;) {
+			int end = Math.min(crashCycles.nextClearBit(i), viewTo);
+
+			// Half a day on each side, so a single day is shaded as well
+			double x1 = Math.max(toX(i - 0.5), PADDING_LEFT);
+			double x2 = Math.min(toX(end - 0.5), PADDING_LEFT + plotWidth);
+			gc.fillRect(x1, PADDING_TOP, Math.max(x2 - x1, 1), plotHeight);
+
+			i = crashCycles.nextSetBit(end);
+		}
+	}
+
+	private void drawGrid(GraphicsContext gc, PriceSeries data) {
+		gc.setStroke(GRID_COLOR);
+		gc.setLineWidth(1);
+		gc.setFill(LABEL_COLOR);
+
+		// Prices on the left
+		gc.setTextAlign(TextAlignment.RIGHT);
+		gc.setTextBaseline(VPos.CENTER);
+		double step = getTickStep((maxPrice - minPrice) / TICK_COUNT);
+		for (double price = Math.ceil(minPrice / step) * step; price <= maxPrice; price += step) {
+			double y = toY(price);
+			gc.strokeLine(PADDING_LEFT, y, PADDING_LEFT + plotWidth, y);
+			gc.fillText(String.format("%.2f", price), PADDING_LEFT - 8, y);
+		}
+
+		// Dates below
+		gc.setTextAlign(TextAlignment.CENTER);
+		gc.setTextBaseline(VPos.TOP);
+		int last = viewTo - 1;
+		for (int t = 0; t <= TICK_COUNT; t++) {
+			int index = viewFrom + (int) Math.round((double) (last - viewFrom) * t / TICK_COUNT);
+			gc.fillText(dateLabels.toString(data.getEpochDay(index)), toX(index), PADDING_TOP + plotHeight + 8);
+
+			if (last == viewFrom) {
+				break;
+			}
+		}
+	}
+
+	private void drawMarkers(GraphicsContext gc, PriceSeries data, BitSet days, Color color) {
+		gc.setStroke(color);
+		gc.setFill(Color.WHITE);
+		gc.setLineWidth(3);
+
+		for (int i = days.nextSetBit(viewFrom); i >= 0 && i < viewTo; i = days.nextSetBit(i + 1)) {
+			double x = toX(i) - MARKER_RADIUS;
+			double y = toY(data.getPrice(i)) - MARKER_RADIUS;
+			gc.fillOval(x, y, MARKER_RADIUS * 2, MARKER_RADIUS * 2);
+			gc.strokeOval(x, y, MARKER_RADIUS * 2, MARKER_RADIUS * 2);
+		}
+	}
+
+	private void updateTooltip(double x, double y, double screenX, double screenY) {
+		if (pyramid == null || viewFrom == viewTo) {
+			return;
+		}
+
+		// Only the markers of the days within the hit radius are checked
+		int[] range = getHitRange(x, viewFrom, viewTo, plotWidth);
+		int from = range[0];
+		int to = range[1];
+
+		PriceSeries data = pyramid.getData();
+		int nearest = -1;
+		double nearestDistance = HIT_RADIUS;
+
+		for (BitSet days : new BitSet[] { peaks, troughs }) {
+			for (int i = days.nextSetBit(from); i >= 0 && i < to; i = days.nextSetBit(i + 1)) {
+				double distance = Math.hypot(toX(i) - x, toY(data.getPrice(i)) - y);
+				if (distance <= nearestDistance) {
+					nearest = i;
+					nearestDistance = distance;
+				}
+			}
+		}
+
+		if (nearest < 0) {
+			hideTooltip();
+		} else if (nearest != hoveredIndex) {
+			StockPrice.Type type = peaks.get(nearest) ? StockPrice.Type.PEAK : StockPrice.Type.TROUGH;
+			tooltip.setText(Util.formatTooltip(type, data.get(nearest)));
+			tooltip.show(this, screenX + HIT_RADIUS, screenY + HIT_RADIUS);
+			hoveredIndex = nearest;
+		}
+	}
+
+	private void hideTooltip() {
+		tooltip.hide();
+		hoveredIndex = -1;
+	}
+
+	private double getPlotWidth() {
+		return Math.max(getWidth() - PADDING_LEFT - PADDING_RIGHT, 1);
+	}
+
+	private double getPlotHeight() {
+		return Math.max(getHeight() - PADDING_TOP - PADDING_BOTTOM, 1);
+	}
+
+	private double toX(double index) {
+		return toX(index, viewFrom, viewTo, plotWidth);
+	}
+
+	// A single day is drawn in the middle, so is an empty viewport
+	static double toX(double index, int viewFrom, int viewTo, double plotWidth) {
+		int last = viewTo - 1 - viewFrom;
+		return last <= 0 ? PADDING_LEFT + plotWidth / 2 : PADDING_LEFT + (index - viewFrom) / last * plotWidth;
+	}
+
+	static double toIndex(double x, int viewFrom, int viewTo, double plotWidth) {
+		int last = Math.max(viewTo - 1 - viewFrom, 0);
+		return viewFrom + (x - PADDING_LEFT) / plotWidth * last;
+	}
+
+	// The days [from, to) of the viewport whose x is within the hit radius of
+	// x, empty when no day is
+	static int[] getHitRange(double x, int viewFrom, int viewTo, double plotWidth) {
+		int from = Math.max((int) Math.floor(toIndex(x - HIT_RADIUS, viewFrom, viewTo, plotWidth)), viewFrom);
+		int to = Math.min((int) Math.ceil(toIndex(x + HIT_RADIUS, viewFrom, viewTo, plotWidth)) + 1, viewTo);
+
+		return new int[] { from, Math.max(to, from) };
+	}
+
+	private double toY(double price) {
+		return PADDING_TOP + (maxPrice - price) / (maxPrice - minPrice) * plotHeight;
+	}
+
+	// 1, 2 or 5 times a power of ten, not below the raw step
+	private static double getTickStep(double rawStep) {
+		double magnitude = Math.pow(10, Math.floor(Math.log10(rawStep)));
+		double normalized = rawStep / magnitude;
+
+		if (normalized <= 1) {
+			return magnitude;
+		} else if (normalized <= 2) {
+			return 2 * magnitude;
+		} else if (normalized <= 5) {
+			return 5 * magnitude;
+		}
+		return 10 * magnitude;
+	}
+}
@@ -14,11 +14,15 @@ import javafx.scene.chart.XYChart;
 import javafx.scene.control.Label;
 import javafx.scene.control.Pagination;
 import javafx.scene.control.Tab;
+import javafx.scene.control.TableCell;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
 import javafx.scene.control.TabPane;
 import javafx.scene.control.ToggleGroup;
 import javafx.scene.control.TreeItem;
 import javafx.scene.control.TreeTableCell;
 import javafx.scene.control.TreeTableColumn;
+import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.control.cell.TreeItemPropertyValueFactory;
 import javafx.scene.layout.AnchorPane;
 import javafx.scene.layout.BorderPane;
@@ -39,6 +43,7 @@ import com.jfoenix.controls.JFXProgressBar;
 import com.jfoenix.controls.JFXRadioButton;
 import com.jfoenix.controls.JFXTabPane;
 import com.jfoenix.controls.JFXTextField;
+import com.jfoenix.controls.JFXToggleButton;
 import com.jfoenix.controls.JFXTreeTableView;
 import com.jfoenix.validation.DoubleValidator;
 import com.jfoenix.validation.IntegerValidator;
@@ -72,11 +77,13 @@ public class StockAnalysisPane extends JFXTabPane {
 	public JFXProgressBar chartProgressBar;
 
 	public JFXTreeTableView<Tuple> analysisTable;
-	public JFXTreeTableView<StockPriceCrashCycle> crashCycleTableWithPeak;
-	public JFXTreeTableView<StockPriceCrashCycle> crashCycleTableWithCrash;
+	public TableView<StockPriceCrashCycle> crashCycleTableWithPeak;
+	public TableView<StockPriceCrashCycle> crashCycleTableWithCrash;
 
 	public JFXComboBox<Integer> comboBox;
-	public LineChart<String, Number> chart;
+	public LineChart<Number, Number> chart;
+	public CanvasPriceChart canvasChart;
+	public JFXToggleButton canvasChartTgl;
 	public Pagination pagination;
 	public Label totalLbl;
 
@@ -165,10 +172,14 @@ public class StockAnalysisPane extends JFXTabPane {
 
 		// Other
 		chart = Util.createLineChart();
+		canvasChart = new CanvasPriceChart();
+
+		canvasChartTgl = new JFXToggleButton();
+		canvasChartTgl.setText("Canvas");
 
 		comboBox = new JFXComboBox<>();
 		comboBox.setPromptText("Number of data drawn");
-		comboBox.getItems().addAll(100, 500, 1000, 1500);
+		comboBox.getItems().addAll(100, 500, 1000, 1500, 5000, 20000, 100000);
 		comboBox.getValidators().add(requiredFieldValidator);
 
 		pagination = new Pagination(1, 0);
@@ -264,9 +275,10 @@ public class StockAnalysisPane extends JFXTabPane {
 		return analysisTable;
 	}
 
+	// Backed by CrashCycleRows, which can't be sorted in place
 	@SuppressWarnings("unchecked")
-	private JFXTreeTableView<StockPriceCrashCycle> createCrashCycleTable() {
-		Callback<TreeTableColumn<StockPriceCrashCycle, LocalDate>, TreeTableCell<StockPriceCrashCycle, LocalDate>> dateFormatterCellFactory = col -> new TreeTableCell<>() {
+	private TableView<StockPriceCrashCycle> createCrashCycleTable() {
+		Callback<TableColumn<StockPriceCrashCycle, LocalDate>, TableCell<StockPriceCrashCycle, LocalDate>> dateFormatterCellFactory = col -> new TableCell<>() {
 			@Override
 			protected void updateItem(LocalDate value, boolean empty) {
 				super.updateItem(value, empty);
@@ -277,7 +289,7 @@ public class StockAnalysisPane extends JFXTabPane {
 				}
 			}
 		};
-		Callback<TreeTableColumn<StockPriceCrashCycle, Double>,TreeTableCell<StockPriceCrashCycle, Double>> doubleFormatterCellFactory = col -> new TreeTableCell<>() {
+		Callback<TableColumn<StockPriceCrashCycle, Double>, TableCell<StockPriceCrashCycle, Double>> doubleFormatterCellFactory = col -> new TableCell<>() {
 			@Override
 			protected void updateItem(Double value, boolean empty) {
 				super.updateItem(value, empty);
@@ -289,23 +301,24 @@ public class StockAnalysisPane extends JFXTabPane {
 			}
 		};
 		
-		TreeTableColumn<StockPriceCrashCycle, LocalDate> stockPriceDateCol = new TreeTableColumn<>("Date");
-		TreeTableColumn<StockPriceCrashCycle, Double> stockPriceIndexCol = new TreeTableColumn<>("Index");
-		TreeTableColumn<StockPriceCrashCycle, Integer> inCrashCycleCol = new TreeTableColumn<>("In Crash Cycle");
+		TableColumn<StockPriceCrashCycle, LocalDate> stockPriceDateCol = new TableColumn<>("Date");
+		TableColumn<StockPriceCrashCycle, Double> stockPriceIndexCol = new TableColumn<>("Index");
+		TableColumn<StockPriceCrashCycle, Integer> inCrashCycleCol = new TableColumn<>("In Crash Cycle");
 
 		stockPriceDateCol.setCellFactory(dateFormatterCellFactory);
-		stockPriceDateCol.setCellValueFactory(feature -> new ReadOnlyObjectWrapper<>(feature.getValue().getValue().getStockPrice().getDate()));
+		stockPriceDateCol.setCellValueFactory(feature -> new ReadOnlyObjectWrapper<>(feature.getValue().getStockPrice().getDate()));
 
 		stockPriceIndexCol.setCellFactory(doubleFormatterCellFactory);
-		stockPriceIndexCol.setCellValueFactory(feature -> new ReadOnlyObjectWrapper<>(feature.getValue().getValue().getStockPrice().getPrice()));
+		stockPriceIndexCol.setCellValueFactory(feature -> new ReadOnlyObjectWrapper<>(feature.getValue().getStockPrice().getPrice()));
 
-		inCrashCycleCol.setCellValueFactory(new TreeItemPropertyValueFactory<>("inCrashCycle"));
+		inCrashCycleCol.setCellValueFactory(new PropertyValueFactory<>("inCrashCycle"));
 
-		JFXTreeTableView<StockPriceCrashCycle> crashCycleTable = new JFXTreeTableView<>(new TreeItem<StockPriceCrashCycle>(null));
-		crashCycleTable.setShowRoot(false);
+		TableView<StockPriceCrashCycle> crashCycleTable = new TableView<>();
 		crashCycleTable.setVisible(false);
-		crashCycleTable.setColumnResizePolicy(JFXTreeTableView.CONSTRAINED_RESIZE_POLICY);
+		crashCycleTable.setFocusTraversable(false);
+		crashCycleTable.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
 		crashCycleTable.getColumns().addAll(stockPriceDateCol, stockPriceIndexCol, inCrashCycleCol);
+		crashCycleTable.getColumns().forEach(col -> col.setSortable(false));
 
 		return crashCycleTable;
 	}
@@ -364,11 +377,15 @@ public class StockAnalysisPane extends JFXTabPane {
 		hBox.getChildren().addAll(widthInput, heightInput, saveChartBtn);
 		hBox.getStyleClass().addAll("hbox");
 
-		AnchorPane anchorPane = new AnchorPane(comboBox, hBox, chartProgressBar);
+		HBox hBox2 = new HBox();
+		hBox2.getChildren().addAll(comboBox, canvasChartTgl);
+		hBox2.getStyleClass().addAll("hbox", "chart-options-hbox");
+
+		AnchorPane anchorPane = new AnchorPane(hBox2, hBox, chartProgressBar);
 		anchorPane.setPickOnBounds(false);
 
-		AnchorPane.setLeftAnchor(comboBox, 10.0);
-		AnchorPane.setBottomAnchor(comboBox, 30.0);
+		AnchorPane.setLeftAnchor(hBox2, 10.0);
+		AnchorPane.setBottomAnchor(hBox2, 30.0);
 
 		AnchorPane.setRightAnchor(hBox, 10.0);
 		AnchorPane.setBottomAnchor(hBox, 30.0);
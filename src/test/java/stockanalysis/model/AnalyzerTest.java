@@ -1,9 +1,15 @@
 package stockanalysis.model;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import java.util.Set;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import org.fest.reflect.reference.TypeRef;
@@ -17,6 +23,7 @@ import org.junit.jupiter.params.provider.MethodSource;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.fest.reflect.core.Reflection.*;
 import static org.junit.jupiter.api.Assertions.*;
+import stockanalysis.util.Util;
 
 @EnabledIfSystemProperty(named = "class.test", matches = "Analyzer|All")
 public class AnalyzerTest {
@@ -30,93 +37,108 @@ public class AnalyzerTest {
 
 	@ParameterizedTest
 	@MethodSource("dataProvider")
-	public void Should_BePeak_When_AllStockPriceAreLowerThanTarget(List<StockPrice> data) {
-		StockPrice target = new StockPrice(LocalDate.of(1980, 1, 8), 700);
+	public void Should_BePeak_When_AllStockPriceAreLowerThanTarget(PriceSeries data) {
+		int target = 4;
 
-		boolean actual = method("isPeak")
-			.withReturnType(new TypeRef<Boolean>() {})
-			.withParameterTypes(StockPrice.class, List.class)
+		BitSet[] actual = method("findLocalPeaksAndLocalTroughs")
+			.withReturnType(new TypeRef<BitSet[]>() {})
+			.withParameterTypes(int.class, PriceSeries.class)
 			.in(analyzer)
-			.invoke(target, data);
+			.invoke(data.size(), data);
 		
-		assertTrue(actual);
+		assertTrue(actual[0].get(target));
 	}
 
 	@ParameterizedTest
 	@MethodSource("dataProvider")
-	public void Should_BeNotPeak_When_SomeStockPriceAreHigherThanTarget(List<StockPrice> data) {
-		StockPrice target = new StockPrice(LocalDate.of(1980, 1, 6), 400);
+	public void Should_BeNotPeak_When_SomeStockPriceAreHigherThanTarget(PriceSeries data) {
+		int target = 2;
 
-		boolean actual = method("isPeak")
-			.withReturnType(new TypeRef<Boolean>() {})
-			.withParameterTypes(StockPrice.class, List.class)
+		BitSet[] actual = method("findLocalPeaksAndLocalTroughs")
+			.withReturnType(new TypeRef<BitSet[]>() {})
+			.withParameterTypes(int.class, PriceSeries.class)
 			.in(analyzer)
-			.invoke(target, data);
+			.invoke(data.size(), data);
 		
-		assertFalse(actual);
+		assertFalse(actual[0].get(target));
 	}
 
 	@ParameterizedTest
 	@MethodSource("dataProvider")
-	public void Should_BeTrough_When_AllStockPriceAreHigherThanTarget(List<StockPrice> data) {
-		StockPrice target = new StockPrice(LocalDate.of(1980, 1, 5), 200);
+	public void Should_BeTrough_When_AllStockPriceAreHigherThanTarget(PriceSeries data) {
+		int target = 1;
 
-		boolean actual = method("isTrough")
-			.withReturnType(new TypeRef<Boolean>() {})
-			.withParameterTypes(StockPrice.class, List.class)
+		BitSet[] actual = method("findLocalPeaksAndLocalTroughs")
+			.withReturnType(new TypeRef<BitSet[]>() {})
+			.withParameterTypes(int.class, PriceSeries.class)
 			.in(analyzer)
-			.invoke(target, data);
+			.invoke(data.size(), data);
 		
-		assertTrue(actual);
+		assertTrue(actual[1].get(target));
 	}
 
 	@ParameterizedTest
 	@MethodSource("dataProvider")
-	public void Should_BeNotTrough_When_SomeStockPriceAreLowerThanTarget(List<StockPrice> data) {
-		StockPrice target = new StockPrice(LocalDate.of(1980, 1, 4), 600);
+	public void Should_BeNotTrough_When_SomeStockPriceAreLowerThanTarget(PriceSeries data) {
+		int target = 0;
 
-		boolean actual = method("isTrough")
-			.withReturnType(new TypeRef<Boolean>() {})
-			.withParameterTypes(StockPrice.class, List.class)
+		BitSet[] actual = method("findLocalPeaksAndLocalTroughs")
+			.withReturnType(new TypeRef<BitSet[]>() {})
+			.withParameterTypes(int.class, PriceSeries.class)
 			.in(analyzer)
-			.invoke(target, data);
+			.invoke(data.size(), data);
 		
-		assertFalse(actual);
+		assertFalse(actual[1].get(target));
 	}
 
 	@ParameterizedTest
 	@MethodSource("dataProvider")
-	@SuppressWarnings("unchecked")
-	public void Should_GetAllLocalPeaksAndLocalTroughs(List<StockPrice> data) {
-		Set<StockPrice> expectedLocalPeaks = Set.of(data.get(0), data.get(2), data.get(4));
-		Set<StockPrice> expectedLocalTroughs = Set.of(data.get(1), data.get(3));
-
-		Set[] actual = method("findLocalPeaksAndLocalTroughs")
-			.withReturnType(new TypeRef<Set[]>() {})
-			.withParameterTypes(int.class, List.class)
+	public void Should_GetAllLocalPeaksAndLocalTroughs(PriceSeries data) {
+		BitSet expectedLocalPeaks = bitSetOf(0, 2, 4);
+		BitSet expectedLocalTroughs = bitSetOf(1, 3);
+
+		BitSet[] actual = method("findLocalPeaksAndLocalTroughs")
+			.withReturnType(new TypeRef<BitSet[]>() {})
+			.withParameterTypes(int.class, PriceSeries.class)
 			.in(analyzer)
 			.invoke(1, data);
 		
-		Set<StockPrice> actualLocalPeaks = actual[0];
-		Set<StockPrice> actualLocalTroughs = actual[1];
-
-		assertThat(actualLocalPeaks).hasSameElementsAs(expectedLocalPeaks);
-		assertThat(actualLocalTroughs).hasSameElementsAs(expectedLocalTroughs);
+		assertEquals(expectedLocalPeaks, actual[0]);
+		assertEquals(expectedLocalTroughs, actual[1]);
 	}
 
 	@ParameterizedTest
 	@MethodSource("dataProvider")
-	public void Should_GetCandidatePeakCrashPairs(List<StockPrice> data) {
-		analyzer.setCrashRate(0.1);
+	public void Should_GetCandidatePeakCrashPairs(PriceSeries data) {
+		int[] candidatePeaks = method("findCandidatePeaks")
+			.withReturnType(new TypeRef<int[]>() {})
+			.withParameterTypes(int.class, PriceSeries.class)
+			.in(analyzer)
+			.invoke(2, data);
 
 		List<Tuple> expected = Arrays.asList(new Tuple(data.get(0), null, data.get(1)));
 		List<Tuple> actual = method("findCandidatePeakCrashPairs")
 			.withReturnType(new TypeRef<List<Tuple>>() {})
-			.withParameterTypes(int.class, List.class)
+			.withParameterTypes(double.class, int[].class, PriceSeries.class)
 			.in(analyzer)
-			.invoke(2, data);
+			.invoke(0.1, candidatePeaks, data);
 		
 		assertThat(actual).containsExactlyElementsOf(expected);
+		assertEquals(0, actual.get(0).getPeakIndex());
+		assertEquals(1, actual.get(0).getCrashIndex());
+	}
+
+	@ParameterizedTest
+	@MethodSource("dataProvider")
+	public void Should_GetCandidatePeaks(PriceSeries data) {
+		int[] expected = { -1, 0, -1, 2, -1 };
+		int[] actual = method("findCandidatePeaks")
+			.withReturnType(new TypeRef<int[]>() {})
+			.withParameterTypes(int.class, PriceSeries.class)
+			.in(analyzer)
+			.invoke(2, data);
+
+		assertArrayEquals(expected, actual);
 	}
 
 	@Test
@@ -126,9 +148,9 @@ public class AnalyzerTest {
 		StockPrice sp3 = new StockPrice(LocalDate.of(1980, 1, 6), 400);
 		StockPrice sp4 = new StockPrice(LocalDate.of(1980, 1, 7), 100);
 
-		Tuple t1 = new Tuple(sp1, null, sp2);
-		Tuple t2 = new Tuple(sp1, null, sp3);
-		Tuple t3 = new Tuple(sp3, null, sp4);
+		Tuple t1 = new Tuple(sp1, null, sp2, 0, -1, 1);
+		Tuple t2 = new Tuple(sp1, null, sp3, 0, -1, 2);
+		Tuple t3 = new Tuple(sp3, null, sp4, 2, -1, 3);
 
 		List<Tuple> tuples = Arrays.asList(t1, t2, t3);
 
@@ -144,89 +166,76 @@ public class AnalyzerTest {
 
 	@ParameterizedTest
 	@MethodSource("dataProvider")
-	public void Should_HaveLocalTrough(List<StockPrice> data) {
-		StockPrice peak = data.get(4);
-		Set[] lpsAndlts = new Set[] { Set.of(data.get(0)), Set.of(data.get(1)) };
+	public void Should_HaveLocalTrough(PriceSeries data) {
+		int peak = 4;
+		BitSet[] lpsAndlts = new BitSet[] { bitSetOf(0), bitSetOf(1) };
 
 		boolean actual = method("hasLocalTrough")
 			.withReturnType(new TypeRef<Boolean>() {})
-			.withParameterTypes(StockPrice.class, List.class, Set[].class)
+			.withParameterTypes(int.class, BitSet[].class)
 			.in(analyzer)
-			.invoke(peak, data, lpsAndlts);
+			.invoke(peak, lpsAndlts);
 
 		assertTrue(actual);
 	}
 
 	@ParameterizedTest
 	@MethodSource("dataProvider")
-	public void Should_NotHaveLocalTrough_When_EncounterLocalPeak(List<StockPrice> data) {
-		StockPrice peak = data.get(4);
-		Set[] lpsAndlts = new Set[] { Set.of(data.get(2)), Set.of(data.get(1)) };
+	public void Should_NotHaveLocalTrough_When_EncounterLocalPeak(PriceSeries data) {
+		int peak = 4;
+		BitSet[] lpsAndlts = new BitSet[] { bitSetOf(2), bitSetOf(1) };
 
 		boolean actual = method("hasLocalTrough")
 			.withReturnType(new TypeRef<Boolean>() {})
-			.withParameterTypes(StockPrice.class, List.class, Set[].class)
+			.withParameterTypes(int.class, BitSet[].class)
 			.in(analyzer)
-			.invoke(peak, data, lpsAndlts);
+			.invoke(peak, lpsAndlts);
 
 		assertFalse(actual);
 	}
 
 	@ParameterizedTest
 	@MethodSource("dataProvider")
-	public void Should_NotHaveLocalTrough_When_NotEncounterAnyLocalTrough(List<StockPrice> data) {
-		StockPrice peak = data.get(1);
-		Set[] lpsAndlts = new Set[] { Set.of(data.get(4)), Set.of() };
+	public void Should_NotHaveLocalTrough_When_NotEncounterAnyLocalTrough(PriceSeries data) {
+		int peak = 1;
+		BitSet[] lpsAndlts = new BitSet[] { bitSetOf(4), bitSetOf() };
 
 		boolean actual = method("hasLocalTrough")
 			.withReturnType(new TypeRef<Boolean>() {})
-			.withParameterTypes(StockPrice.class, List.class, Set[].class)
+			.withParameterTypes(int.class, BitSet[].class)
 			.in(analyzer)
-			.invoke(peak, data, lpsAndlts);
+			.invoke(peak, lpsAndlts);
 
 		assertFalse(actual);
 	}
 
 	@ParameterizedTest
 	@MethodSource("dataProvider")
-	public void Should_FilterTuplesWithoutLocalTrough(List<StockPrice> data) {
-		Set[] lpsAndlts = new Set[] { Set.of(data.get(0), data.get(3)), Set.of(data.get(1)) };
+	public void Should_FilterTuplesWithoutLocalTrough(PriceSeries data) {
+		BitSet[] lpsAndlts = new BitSet[] { bitSetOf(0, 3), bitSetOf(1) };
 
-		Tuple t1 = new Tuple(data.get(0), null, data.get(1));
-		Tuple t2 = new Tuple(data.get(1), null, data.get(2));
-		Tuple t3 = new Tuple(data.get(2), null, data.get(3));
+		Tuple t1 = new Tuple(data.get(0), null, data.get(1), 0, -1, 1);
+		Tuple t2 = new Tuple(data.get(1), null, data.get(2), 1, -1, 2);
+		Tuple t3 = new Tuple(data.get(2), null, data.get(3), 2, -1, 3);
 
 		List<Tuple> tuples = Arrays.asList(t1, t2, t3);
 
 		List<Tuple> expected = Arrays.asList(t3);
 		List<Tuple> actual = method("filterCandidatePeakCrashPairsWithNoLocalTrough")
 			.withReturnType(new TypeRef<List<Tuple>>() {})
-			.withParameterTypes(List.class, List.class, Set[].class)
+			.withParameterTypes(List.class, BitSet[].class)
 			.in(analyzer)
-			.invoke(data, tuples, lpsAndlts);
+			.invoke(tuples, lpsAndlts);
 
 		assertThat(actual).containsExactlyInAnyOrderElementsOf(expected);
 	}
 
 	@ParameterizedTest
 	@MethodSource("dataProvider")
-	public void Should_FindTrough(List<StockPrice> data) {
-		StockPrice expected = data.get(2);
-		StockPrice actual = method("findTroughInRange")
-			.withReturnType(new TypeRef<StockPrice>() {})
-			.withParameterTypes(int.class, int.class, List.class)
-			.in(analyzer)
-			.invoke(2, 5, data);
-
-		assertEquals(expected, actual);
-	}
-
-	@ParameterizedTest
-	@MethodSource("dataProvider")
-	public void Should_PopulateTupleWithTrough(List<StockPrice> data) {
-		Tuple t1 = new Tuple(data.get(0), null, data.get(1));
-		Tuple t2 = new Tuple(data.get(2), null, data.get(3));
-		Tuple t3 = new Tuple(data.get(4), null, data.get(4));
+	public void Should_PopulateTupleWithTrough(PriceSeries data) {
+		Tuple t1 = new Tuple(data.get(0), null, data.get(1), 0, -1, 1);
+		Tuple t2 = new Tuple(data.get(2), null, data.get(3), 2, -1, 3);
+		Tuple t3 = new Tuple(data.get(4), null, data.get(4), 4, -1, 4);
 
 		Tuple e1 = new Tuple(data.get(0), data.get(1), data.get(1));
 		Tuple e2 = new Tuple(data.get(2), data.get(3), data.get(3));
@@ -236,16 +245,16 @@ public class AnalyzerTest {
 		List<Tuple> expected = Arrays.asList(e1, e2, t3);
 		List<Tuple> actual = method("findTroughs")
 			.withReturnType(new TypeRef<List<Tuple>>() {})
-			.withParameterTypes(List.class, List.class)
+			.withParameterTypes(PriceSeries.class, RangeMinMaxIndex.class, List.class)
 			.in(analyzer)
-			.invoke(data, tuples);
+			.invoke(data, new RangeMinMaxIndex(data), tuples);
 
 		assertThat(actual).containsExactlyElementsOf(expected);
 	}
 
 	@ParameterizedTest
 	@MethodSource("dataProvider")
-	public void Should_GetCorrectAnalysisResult(List<StockPrice> data) {
+	public void Should_GetCorrectAnalysisResult(PriceSeries data) {
 		analyzer.setCrashRate(0.1);
 		analyzer.setData(data);
 
@@ -255,6 +264,113 @@ public class AnalyzerTest {
 		assertThat(actual).containsExactlyElementsOf(expected);
 	}
 
+	@Test
+	public void Should_GetSameLocalExtremaAsSequentialSearch_When_SeriesIsSearchedInParallel() {
+		Random random = new Random(0);
+		int size = Analyzer.PARALLEL_THRESHOLD + 12345;
+		int[] epochDays = IntStream.range(0, size).toArray();
+		double[] prices = random.doubles(size, 0, 100).map(Math::floor).toArray();
+		PriceSeries data = new PriceSeries(epochDays, prices);
+
+		BitSet expectedLocalPeaks = new BitSet();
+		BitSet expectedLocalTroughs = new BitSet();
+		Analyzer.findLocalPeaksAndLocalTroughs(90, prices, size, 0, size, expectedLocalPeaks, expectedLocalTroughs, 0);
+
+		BitSet[] actual = method("findLocalPeaksAndLocalTroughs")
+			.withReturnType(new TypeRef<BitSet[]>() {})
+			.withParameterTypes(int.class, PriceSeries.class)
+			.in(analyzer)
+			.invoke(90, data);
+
+		assertEquals(expectedLocalPeaks, actual[0]);
+		assertEquals(expectedLocalTroughs, actual[1]);
+	}
+
+	@Test
+	public void Should_GetSameResultAsSeparateAnalyses_When_AnalyzeSeveralCrashRates() {
+		Path path = Paths.get(AnalyzerTest.class.getResource("/stockPrice.csv").getPath());
+		analyzer.setData(Util.parseData(path));
+
+		Map<Double, List<Tuple>> actual = analyzer.getAnalysisResults(0.2, 0.05, 0.1);
+
+		assertThat(actual).containsOnlyKeys(0.2, 0.05, 0.1);
+		actual.forEach((crashRate, tuples) -> {
+			analyzer.setCrashRate(crashRate);
+			assertThat(tuples).isNotEmpty().containsExactlyElementsOf(analyzer.getAnalysisResult());
+		});
+	}
+
+	@Test
+	public void Should_AnalyzeEveryCrashRate_When_AnalyzeCrashRateRange() {
+		Path path = Paths.get(AnalyzerTest.class.getResource("/stockPrice.csv").getPath());
+		analyzer.setData(Util.parseData(path));
+
+		Map<Double, List<Tuple>> actual = analyzer.getAnalysisResultsBetween(0.1, 0.2, 0.05);
+
+		assertThat(actual).hasSize(3);
+	}
+
+	@Test
+	public void Should_KeyCrashRatesAsWritten_When_StepIsNotExactInBinary() {
+		Path path = Paths.get(AnalyzerTest.class.getResource("/stockPrice.csv").getPath());
+		analyzer.setData(Util.parseData(path));
+
+		Map<Double, List<Tuple>> actual = analyzer.getAnalysisResultsBetween(0.0, 0.3, 0.1);
+
+		assertThat(actual).containsOnlyKeys(0.0, 0.1, 0.2, 0.3);
+		analyzer.setCrashRate(0.3);
+		assertThat(actual.get(0.3)).containsExactlyElementsOf(analyzer.getAnalysisResult());
+	}
+
+	@Test
+	public void Should_GetSameResultAsSeparateAnalyses_When_AnalyzeSeveralWindows() {
+		Path path = Paths.get(AnalyzerTest.class.getResource("/stockPrice.csv").getPath());
+		analyzer.setData(Util.parseData(path));
+		analyzer.setCrashRate(0.1);
+
+		AnalysisWindow w1 = new AnalysisWindow(60, 126);
+		AnalysisWindow w2 = AnalysisWindow.DEFAULT_ANALYSIS_WINDOW;
+		AnalysisWindow w3 = new AnalysisWindow(60, 504);
+
+		Map<AnalysisWindow, List<Tuple>> actual = analyzer.getMultiWindowAnalysisResults(w1, w2, w3);
+
+		assertThat(actual).containsOnlyKeys(w1, w2, w3);
+		actual.forEach((window, tuples) -> {
+			analyzer.setWindow(window);
+			assertThat(tuples).isNotEmpty().containsExactlyElementsOf(analyzer.getAnalysisResult());
+		});
+		assertNotEquals(actual.get(w1), actual.get(w2));
+	}
+
+	@Test
+	public void Should_GetSameCrashCountAsAnalysis_When_GetCrashRateSensitivity() {
+		Path path = Paths.get(AnalyzerTest.class.getResource("/stockPrice.csv").getPath());
+		analyzer.setData(Util.parseData(path));
+
+		CrashRateSensitivity sensitivity = analyzer.getCrashRateSensitivity();
+		double[] crashRates = sensitivity.getCrashRates();
+		int[] crashCounts = sensitivity.getCrashCounts();
+
+		// Check the count right at and right after a few steps
+		for (int i = 0; i < crashRates.length; i += crashRates.length / 10 + 1) {
+			double crashRate = crashRates[i];
+
+			analyzer.setCrashRate(crashRate);
+			assertEquals(crashCounts[i], analyzer.getAnalysisResult().size());
+			assertEquals(crashCounts[i], sensitivity.getCrashCount(crashRate));
+
+			analyzer.setCrashRate(Math.nextUp(crashRate));
+			assertEquals(sensitivity.getCrashCount(Math.nextUp(crashRate)), analyzer.getAnalysisResult().size());
+		}
+	}
+
+	private static BitSet bitSetOf(int... indices) {
+		BitSet bitSet = new BitSet();
+		IntStream.of(indices).forEach(bitSet::set);
+
+		return bitSet;
+	}
+
 	private static Stream<Arguments> dataProvider() {
 		StockPrice sp1 = new StockPrice(LocalDate.of(1980, 1, 4), 600);
 		StockPrice sp2 = new StockPrice(LocalDate.of(1980, 1, 5), 200);
@@ -262,7 +378,7 @@ public class AnalyzerTest {
 		StockPrice sp4 = new StockPrice(LocalDate.of(1980, 1, 7), 400);
 		StockPrice sp5 = new StockPrice(LocalDate.of(1980, 1, 8), 700);
 
-		List<StockPrice> data = Arrays.asList(sp1, sp2, sp3, sp4, sp5);
+		PriceSeries data = PriceSeries.of(Arrays.asList(sp1, sp2, sp3, sp4, sp5));
 
 		return Stream.of(Arguments.of(data));
 	}
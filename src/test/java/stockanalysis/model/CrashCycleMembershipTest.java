@@ -0,0 +1,68 @@
+package stockanalysis.model;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+import stockanalysis.util.Util;
+
+@EnabledIfSystemProperty(named = "class.test", matches = "CrashCycleMembership|All")
+public class CrashCycleMembershipTest {
+
+	@Test
+	public void Should_CoverDaysFromStartToTrough_When_CrashIsAfterTrough() {
+		PriceSeries data = new PriceSeries(new int[] { 0, 1, 2, 2, 3, 4, 5, 6 }, new double[8]);
+
+		// Peak on day 1, trough on day 2 which is there twice, crash on day 4, the second cycle has no trough
+		Tuple t1 = new Tuple(data.get(1), data.get(3), data.get(5));
+		Tuple t2 = new Tuple(data.get(6), StockPrice.DEFAULT_STOCK_PRICE, data.get(7));
+		CrashCycleMembership membership = new CrashCycleMembership(data, Arrays.asList(t1, t2));
+
+		assertEquals(IntStream.of(1, 2, 3).collect(BitSet::new, BitSet::set, BitSet::or), membership.getDaysInCrashCycleWithPeak());
+		assertEquals(IntStream.of(2, 3, 4, 5).collect(BitSet::new, BitSet::set, BitSet::or), membership.getDaysInCrashCycleWithCrash());
+		assertTrue(membership.isInCrashCycleWithPeak(3));
+		assertFalse(membership.isInCrashCycleWithCrash(7));
+	}
+
+	@ParameterizedTest
+	@ValueSource(doubles = { 0.05, 0.1, 0.3 })
+	public void Should_GetSameMembershipAsCheckingEveryTuple(double crashRate) {
+		Path path = Paths.get(CrashCycleMembershipTest.class.getResource("/stockPrice2.csv").getPath());
+		PriceSeries data = Util.parseData(path);
+		List<Tuple> tuples = new Analyzer(crashRate, data).getAnalysisResult();
+
+		CrashCycleMembership membership = new CrashCycleMembership(data, tuples);
+
+		for (int i = 0; i < data.size(); i++) {
+			LocalDate date = data.getDate(i);
+			boolean withPeak = false, withCrash = false;
+
+			for (Tuple tuple : tuples) {
+				LocalDate to = tuple.getTroughDate();
+				if (to.equals(LocalDate.MIN)) {
+					continue;
+				}
+
+				withPeak |= isBetween(tuple.getPeakDate(), to, date);
+				withCrash |= isBetween(tuple.getCrashDate(), to, date);
+			}
+
+			assertEquals(withPeak, membership.isInCrashCycleWithPeak(i));
+			assertEquals(withCrash, membership.isInCrashCycleWithCrash(i));
+		}
+	}
+
+	private static boolean isBetween(LocalDate date1, LocalDate date2, LocalDate target) {
+		return Util.checkDateIsBetween(date1, date2, target) || Util.checkDateIsBetween(date2, date1, target);
+	}
+}
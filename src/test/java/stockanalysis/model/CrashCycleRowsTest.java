@@ -0,0 +1,37 @@
+package stockanalysis.model;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@EnabledIfSystemProperty(named = "class.test", matches = "CrashCycleRows|All")
+public class CrashCycleRowsTest {
+
+	@Test
+	public void Should_CreateRowsFromMembership() {
+		PriceSeries data = new PriceSeries(new int[] { 0, 1, 2, 3, 4, 5 }, new double[] { 5, 9, 7, 3, 4, 8 });
+		Tuple tuple = new Tuple(data.get(1), data.get(3), data.get(2));
+		CrashCycleMembership membership = new CrashCycleMembership(data, Arrays.asList(tuple));
+
+		CrashCycleRows withPeak = CrashCycleRows.withPeak(membership);
+		CrashCycleRows withCrash = CrashCycleRows.withCrash(membership);
+
+		assertEquals(data.size(), withPeak.size());
+		assertEquals(new StockPriceCrashCycle(data.get(1), 1), withPeak.get(1));
+		assertEquals(new StockPriceCrashCycle(data.get(5), 0), withPeak.get(5));
+		assertEquals(new StockPriceCrashCycle(data.get(1), 0), withCrash.get(1));
+		assertEquals(new StockPriceCrashCycle(data.get(2), 1), withCrash.get(2));
+	}
+
+	@Test
+	public void Should_ThrowException_When_RowIsOutOfRange() {
+		PriceSeries data = new PriceSeries(new int[] { 0 }, new double[] { 1 });
+		CrashCycleRows rows = CrashCycleRows.withPeak(new CrashCycleMembership(data, Arrays.asList()));
+
+		assertThrows(IndexOutOfBoundsException.class, () -> rows.get(1));
+		assertThrows(UnsupportedOperationException.class, () -> rows.set(0, rows.get(0)));
+	}
+}
@@ -0,0 +1,76 @@
+package stockanalysis.model;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+import stockanalysis.util.Util;
+
+@EnabledIfSystemProperty(named = "class.test", matches = "IncrementalAnalyzer|All")
+public class IncrementalAnalyzerTest {
+
+	@ParameterizedTest
+	@MethodSource("dataProvider")
+	public void Should_GetSameResultAsFullAnalysis_When_AppendStockPrices(PriceSeries data, double crashRate, AnalysisWindow window) {
+		IncrementalAnalyzer incrementalAnalyzer = new IncrementalAnalyzer(crashRate, window);
+		Analyzer analyzer = new Analyzer();
+		analyzer.setCrashRate(crashRate);
+		analyzer.setWindow(window);
+
+		Random random = new Random(0);
+		List<StockPrice> stockPrices = data.asList();
+
+		for (int from = 0; from < stockPrices.size(); ) {
+			int to = Math.min(from + 1 + random.nextInt(300), stockPrices.size());
+
+			if (to - from == 1) {
+				incrementalAnalyzer.add(stockPrices.get(from));
+			} else {
+				incrementalAnalyzer.addAll(stockPrices.subList(from, to));
+			}
+			from = to;
+
+			analyzer.setData(incrementalAnalyzer.getData());
+			List<Tuple> expected = analyzer.getAnalysisResult();
+			List<Tuple> actual = incrementalAnalyzer.getAnalysisResult();
+
+			assertThat(actual).containsExactlyElementsOf(expected);
+			assertThat(actual).extracting(Tuple::getTroughIndex)
+				.containsExactlyElementsOf(() -> expected.stream().map(Tuple::getTroughIndex).iterator());
+		}
+	}
+
+	@Test
+	public void Should_ThrowException_When_AppendEarlierStockPrice() {
+		IncrementalAnalyzer incrementalAnalyzer = new IncrementalAnalyzer(0.1);
+		incrementalAnalyzer.add(new StockPrice(LocalDate.of(1980, 1, 5), 600));
+
+		assertThrows(IllegalArgumentException.class, () -> incrementalAnalyzer.add(new StockPrice(LocalDate.of(1980, 1, 4), 500)));
+	}
+
+	private static Stream<Arguments> dataProvider() {
+		Path path1 = Paths.get(IncrementalAnalyzerTest.class.getResource("/stockPrice.csv").getPath());
+		Path path2 = Paths.get(IncrementalAnalyzerTest.class.getResource("/stockPrice2.csv").getPath());
+
+		PriceSeries data1 = Util.parseData(path1);
+		PriceSeries data2 = Util.parseData(path2);
+
+		return Stream.of(
+				Arguments.of(data1, 0.05, AnalysisWindow.DEFAULT_ANALYSIS_WINDOW),
+				Arguments.of(data1, 0.2, AnalysisWindow.DEFAULT_ANALYSIS_WINDOW),
+				Arguments.of(data2, 0.1, AnalysisWindow.DEFAULT_ANALYSIS_WINDOW),
+				Arguments.of(data2, 0.1, new AnalysisWindow(30, 504))
+			);
+	}
+}
@@ -0,0 +1,94 @@
+package stockanalysis.model;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+import stockanalysis.util.Util;
+
+@EnabledIfSystemProperty(named = "class.test", matches = "IntervalIndex|All")
+public class IntervalIndexTest {
+
+	@ParameterizedTest
+	@MethodSource("tupleProvider")
+	public void Should_MergeOverlappingAndTouchingCycles(List<Tuple> tuples) {
+		IntervalIndex index = IntervalIndex.withPeak(tuples);
+
+		assertEquals(2, index.size());
+		assertEquals(date(1), index.getStart(0));
+		assertEquals(date(8), index.getEnd(0));
+		assertEquals(date(20), index.getStart(1));
+		assertEquals(date(25), index.getEnd(1));
+	}
+
+	@ParameterizedTest
+	@MethodSource("tupleProvider")
+	public void Should_AnswerPointQueries(List<Tuple> tuples) {
+		IntervalIndex index = IntervalIndex.withCrash(tuples);
+
+		assertFalse(index.contains(date(0)));
+		assertTrue(index.contains(date(2)));
+		assertEquals(0, index.indexOf(date(8)));
+		assertEquals(-1, index.indexOf(date(9)));
+		assertEquals(1, index.indexOf(date(21)));
+		assertFalse(index.contains(date(30)));
+	}
+
+	@ParameterizedTest
+	@MethodSource("tupleProvider")
+	public void Should_AnswerRangeQueries(List<Tuple> tuples) {
+		IntervalIndex index = IntervalIndex.withPeak(tuples);
+
+		assertTrue(index.overlaps(date(8), date(12)));
+		assertFalse(index.overlaps(date(9), date(19)));
+		assertTrue(index.overlaps(date(0), date(30)));
+		assertTrue(index.covers(date(1), date(8)));
+		assertFalse(index.covers(date(7), date(20)));
+		assertThrows(IllegalArgumentException.class, () -> index.covers(date(2), date(1)));
+	}
+
+	private static Stream<Arguments> tupleProvider() {
+		// Day i at index i
+		PriceSeries data = new PriceSeries(IntStream.rangeClosed(0, 30).toArray(), new double[31]);
+
+		// Cycles [1, 5], [3, 6] and [7, 8] merge, the crash of the last one is before its trough
+		Tuple t1 = new Tuple(data.get(1), data.get(5), data.get(2));
+		Tuple t2 = new Tuple(data.get(3), data.get(6), data.get(7));
+		Tuple t3 = new Tuple(data.get(7), data.get(8), data.get(8));
+		Tuple t4 = new Tuple(data.get(20), data.get(25), data.get(21));
+		Tuple t5 = new Tuple(data.get(28), StockPrice.DEFAULT_STOCK_PRICE, data.get(30));
+
+		return Stream.of(Arguments.of(Arrays.asList(t4, t2, t5, t1, t3)));
+	}
+
+	@Test
+	public void Should_AgreeWithCrashCycleMembership() {
+		Path path = Paths.get(IntervalIndexTest.class.getResource("/stockPrice.csv").getPath());
+		PriceSeries data = Util.parseData(path);
+		List<Tuple> tuples = new Analyzer(0.1, data).getAnalysisResult();
+
+		IntervalIndex withPeak = IntervalIndex.withPeak(tuples);
+		IntervalIndex withCrash = IntervalIndex.withCrash(tuples);
+		CrashCycleMembership membership = new CrashCycleMembership(data, tuples);
+
+		for (int i = 0; i < data.size(); i++) {
+			assertEquals(membership.isInCrashCycleWithPeak(i), withPeak.contains(data.getDate(i)));
+			assertEquals(membership.isInCrashCycleWithCrash(i), withCrash.contains(data.getDate(i)));
+		}
+	}
+
+	private static LocalDate date(int epochDay) {
+		return LocalDate.ofEpochDay(epochDay);
+	}
+}
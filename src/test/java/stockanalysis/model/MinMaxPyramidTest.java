@@ -0,0 +1,79 @@
+package stockanalysis.model;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.DoubleStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@EnabledIfSystemProperty(named = "class.test", matches = "MinMaxPyramid|All")
+public class MinMaxPyramidTest {
+
+	@Test
+	public void Should_SelectEveryDay_When_RangeIsShort() {
+		PriceSeries.Builder builder = PriceSeries.builder();
+		DoubleStream.of(5, 1, 4, 2, 3, 9).forEach(price -> builder.add(builder.size(), price));
+		MinMaxPyramid pyramid = new MinMaxPyramid(builder.build());
+
+		assertArrayEquals(new int[] { 1, 2, 3, 4 }, pyramid.select(1, 5, 2));
+		assertArrayEquals(new int[0], pyramid.select(6, 6, 2));
+		assertEquals(4, pyramid.getLevelCount());
+	}
+
+	@Test
+	public void Should_SelectLowAndHighOfEachSpan() {
+		PriceSeries.Builder builder = PriceSeries.builder();
+		DoubleStream.of(5, 1, 4, 2, 8, 9, 8, 9).forEach(price -> builder.add(builder.size(), price));
+		MinMaxPyramid pyramid = new MinMaxPyramid(builder.build());
+
+		// Spans [0, 4) and [4, 8), the earliest day wins on ties
+		assertArrayEquals(new int[] { 0, 1, 4, 5 }, pyramid.select(0, 8, 2));
+		assertArrayEquals(new int[] { 1, 5 }, pyramid.select(0, 8, 1));
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = { 1, 7, 100, 1000 })
+	public void Should_KeepLowAndHighOfRange_When_RangeIsAnywhere(int maxSpans) {
+		Random random = new Random(maxSpans);
+		PriceSeries.Builder builder = PriceSeries.builder();
+		random.doubles(10_000, 0, 100).forEach(price -> builder.add(builder.size(), price));
+		PriceSeries data = builder.build();
+		MinMaxPyramid pyramid = new MinMaxPyramid(data);
+		RangeMinMaxIndex rangeIndex = new RangeMinMaxIndex(data);
+
+		for (int n = 0; n < 200; n++) {
+			int from = random.nextInt(data.size());
+			int to = from + random.nextInt(data.size() - from + 1);
+			int[] indices = pyramid.select(from, to, maxSpans);
+
+			for (int i = 1; i < indices.length; i++) {
+				assertTrue(indices[i - 1] < indices[i]);
+			}
+			if (to > from) {
+				assertTrue(indices[0] >= from && indices[indices.length - 1] < to);
+				assertTrue(Arrays.stream(indices).anyMatch(i -> i == rangeIndex.indexOfMin(from, to)));
+				assertTrue(Arrays.stream(indices).anyMatch(i -> i == rangeIndex.indexOfMax(from, to)));
+			}
+
+			// The spans at both ends add at most two per level
+			int bound = Math.max(to - from <= 2 * maxSpans ? to - from : 0, 2 * (maxSpans + 2 * pyramid.getLevelCount()));
+			assertTrue(indices.length <= bound);
+		}
+	}
+
+	@Test
+	public void Should_ThrowException_When_RangeIsInvalid() {
+		PriceSeries.Builder builder = PriceSeries.builder();
+		DoubleStream.of(1, 2, 3).forEach(price -> builder.add(builder.size(), price));
+		MinMaxPyramid pyramid = new MinMaxPyramid(builder.build());
+
+		assertThrows(IndexOutOfBoundsException.class, () -> pyramid.select(2, 4, 1));
+		assertThrows(IllegalArgumentException.class, () -> pyramid.select(0, 3, 0));
+		assertEquals(0, new MinMaxPyramid(PriceSeries.builder().build()).select(0, 0, 1).length);
+	}
+}
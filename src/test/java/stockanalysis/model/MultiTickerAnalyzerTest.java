@@ -0,0 +1,42 @@
+package stockanalysis.model;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+import stockanalysis.util.Util;
+
+@EnabledIfSystemProperty(named = "class.test", matches = "MultiTickerAnalyzer|All")
+public class MultiTickerAnalyzerTest {
+
+	@Test
+	public void Should_GetSameResultsAsSeparateAnalyses_When_AnalyzeSeveralTickers() {
+		Path path1 = Paths.get(MultiTickerAnalyzerTest.class.getResource("/stockPrice.csv").getPath());
+		Path path2 = Paths.get(MultiTickerAnalyzerTest.class.getResource("/stockPrice2.csv").getPath());
+
+		Map<String, PriceSeries> data = new LinkedHashMap<>();
+		data.put("B", Util.parseData(path1));
+		data.put("A", Util.parseData(path2));
+		data.put("C", PriceSeries.builder().build());
+
+		MultiTickerAnalyzer multiTickerAnalyzer = new MultiTickerAnalyzer(0.1, AnalysisWindow.DEFAULT_ANALYSIS_WINDOW, 2);
+		Map<String, List<Tuple>> actual = multiTickerAnalyzer.getAnalysisResults(data);
+
+		assertThat(actual).containsOnlyKeys("B", "A", "C");
+		assertThat(actual.keySet()).containsExactly("B", "A", "C");
+		data.forEach((ticker, series) ->
+			assertEquals(new Analyzer(0.1, series).getAnalysisResult(), actual.get(ticker)));
+	}
+
+	@Test
+	public void Should_ThrowException_When_ParallelismIsNotPositive() {
+		assertThrows(IllegalArgumentException.class, () -> new MultiTickerAnalyzer(0.1, AnalysisWindow.DEFAULT_ANALYSIS_WINDOW, 0));
+	}
+}
@@ -0,0 +1,74 @@
+package stockanalysis.model;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+@EnabledIfSystemProperty(named = "class.test", matches = "PriceSeries|All")
+public class PriceSeriesTest {
+
+	@Test
+	public void Should_KeepDatesAndPrices_When_CreatedFromStockPrices() {
+		StockPrice sp1 = new StockPrice(LocalDate.of(1980, 1, 4), 562.65);
+		StockPrice sp2 = new StockPrice(LocalDate.of(1980, 1, 5), 561.55);
+		List<StockPrice> data = Arrays.asList(sp1, sp2);
+
+		PriceSeries series = PriceSeries.of(data);
+
+		assertEquals(2, series.size());
+		assertEquals(LocalDate.of(1980, 1, 5), series.getDate(1));
+		assertEquals(561.55, series.getPrice(1));
+		assertEquals(sp1, series.get(0));
+		assertEquals(data, series.asList());
+	}
+
+	@Test
+	public void Should_SortByDateAndKeepInsertionOrderOfSameDate_When_Built() {
+		PriceSeries series = PriceSeries.builder()
+			.add(LocalDate.of(1980, 1, 7), 3)
+			.add(LocalDate.of(1980, 1, 5), 1)
+			.add(LocalDate.of(1980, 1, 7), 4)
+			.add(LocalDate.of(1980, 1, 6), 2)
+			.build();
+
+		assertThat(series.asList()).extracting(StockPrice::getPrice)
+			.containsExactly(1.0, 2.0, 3.0, 4.0);
+	}
+
+	@Test
+	public void Should_MergeByDateAndKeepSeriesOrderOfSameDate_When_SeriesOverlap() {
+		PriceSeries s1 = new PriceSeries(new int[] { 1, 4, 6 }, new double[] { 1, 4, 7 });
+		PriceSeries s2 = new PriceSeries(new int[] {}, new double[] {});
+		PriceSeries s3 = new PriceSeries(new int[] { 2, 4, 5 }, new double[] { 2, 5, 6 });
+		PriceSeries s4 = new PriceSeries(new int[] { 3 }, new double[] { 3 });
+
+		PriceSeries series = PriceSeries.merge(Arrays.asList(s1, s2, s3, s4));
+
+		assertEquals(new PriceSeries(new int[] { 1, 2, 3, 4, 4, 5, 6 }, new double[] { 1, 2, 3, 4, 5, 6, 7 }), series);
+	}
+
+	@Test
+	public void Should_ConcatenateSeries_When_SeriesFollowEachOther() {
+		PriceSeries s1 = new PriceSeries(new int[] { 1, 2 }, new double[] { 1, 2 });
+		PriceSeries s2 = new PriceSeries(new int[] { 2, 3 }, new double[] { 3, 4 });
+
+		PriceSeries series = PriceSeries.merge(Arrays.asList(s1, s2));
+
+		assertEquals(new PriceSeries(new int[] { 1, 2, 2, 3 }, new double[] { 1, 2, 3, 4 }), series);
+	}
+
+	@Test
+	public void Should_ThrowException_When_ModifyStockPriceView() {
+		PriceSeries series = PriceSeries.builder()
+			.add(LocalDate.of(1980, 1, 4), 562.65)
+			.build();
+
+		assertThrows(UnsupportedOperationException.class, () -> series.asList().add(series.get(0)));
+	}
+}
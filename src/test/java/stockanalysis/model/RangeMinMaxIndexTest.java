@@ -0,0 +1,95 @@
+package stockanalysis.model;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@EnabledIfSystemProperty(named = "class.test", matches = "RangeMinMaxIndex|All")
+public class RangeMinMaxIndexTest {
+
+	@ParameterizedTest
+	@MethodSource("dataProvider")
+	public void Should_FindTrough(PriceSeries data) {
+		RangeMinMaxIndex rangeIndex = new RangeMinMaxIndex(data);
+
+		assertEquals(2, rangeIndex.indexOfMin(2, 5));
+		assertEquals(200, rangeIndex.min(0, 5));
+	}
+
+	@ParameterizedTest
+	@MethodSource("dataProvider")
+	public void Should_FindPeak(PriceSeries data) {
+		RangeMinMaxIndex rangeIndex = new RangeMinMaxIndex(data);
+
+		assertEquals(2, rangeIndex.indexOfMax(1, 4));
+		assertEquals(700, rangeIndex.max(0, 5));
+	}
+
+	@ParameterizedTest
+	@MethodSource("dataProvider")
+	public void Should_GetNoIndex_When_RangeIsEmpty(PriceSeries data) {
+		RangeMinMaxIndex rangeIndex = new RangeMinMaxIndex(data);
+
+		assertEquals(-1, rangeIndex.indexOfMin(3, 3));
+		assertEquals(-1, rangeIndex.indexOfMax(3, 3));
+	}
+
+	@ParameterizedTest
+	@MethodSource("dataProvider")
+	public void Should_ThrowException_When_RangeIsOutOfBounds(PriceSeries data) {
+		RangeMinMaxIndex rangeIndex = new RangeMinMaxIndex(data);
+
+		assertThrows(IndexOutOfBoundsException.class, () -> rangeIndex.indexOfMin(0, 6));
+		assertThrows(IndexOutOfBoundsException.class, () -> rangeIndex.indexOfMax(4, 3));
+	}
+
+	@Test
+	public void Should_MatchLinearScan_When_QueryRandomRanges() {
+		Random random = new Random(0);
+		int size = 1000;
+		int[] epochDays = new int[size];
+		double[] prices = new double[size];
+
+		for (int i = 0; i < size; i++) {
+			epochDays[i] = i;
+			prices[i] = random.nextInt(50);
+		}
+
+		RangeMinMaxIndex rangeIndex = new RangeMinMaxIndex(new PriceSeries(epochDays, prices));
+
+		for (int n = 0; n < 2000; n++) {
+			int from = random.nextInt(size);
+			int to = from + 1 + random.nextInt(size - from);
+
+			int expectedMin = from, expectedMax = from;
+			for (int i = from; i < to; i++) {
+				expectedMin = prices[i] < prices[expectedMin] ? i : expectedMin;
+				expectedMax = prices[i] > prices[expectedMax] ? i : expectedMax;
+			}
+
+			assertEquals(expectedMin, rangeIndex.indexOfMin(from, to));
+			assertEquals(expectedMax, rangeIndex.indexOfMax(from, to));
+		}
+	}
+
+	private static Stream<Arguments> dataProvider() {
+		StockPrice sp1 = new StockPrice(LocalDate.of(1980, 1, 4), 600);
+		StockPrice sp2 = new StockPrice(LocalDate.of(1980, 1, 5), 200);
+		StockPrice sp3 = new StockPrice(LocalDate.of(1980, 1, 6), 400);
+		StockPrice sp4 = new StockPrice(LocalDate.of(1980, 1, 7), 400);
+		StockPrice sp5 = new StockPrice(LocalDate.of(1980, 1, 8), 700);
+
+		PriceSeries data = PriceSeries.of(Arrays.asList(sp1, sp2, sp3, sp4, sp5));
+
+		return Stream.of(Arguments.of(data));
+	}
+}
@@ -0,0 +1,168 @@
+package stockanalysis.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+import stockanalysis.model.PriceSeries;
+
+@EnabledIfSystemProperty(named = "class.test", matches = "CsvPriceParser|All")
+public class CsvPriceParserTest {
+
+	@ParameterizedTest
+	@ValueSource(strings = { "562.65", "0.1", "-3.5", "+7", "12.", ".25", "91.150002", "1e3", "0x1p3",
+		"123456789012345678901234567890", "0.0000000000000000000000001", "9007199254740993", "-0" })
+	public void Should_GetSamePriceAsDoubleParser(String price) {
+		ByteBuffer buffer = ByteBuffer.wrap(price.getBytes(StandardCharsets.US_ASCII));
+
+		assertEquals(Double.parseDouble(price), CsvPriceParser.parsePrice(buffer, 0, buffer.limit()));
+	}
+
+	@Test
+	public void Should_GetSamePriceAsDoubleParser_When_ParseRandomDecimals() {
+		Random random = new Random(0);
+
+		for (int n = 0; n < 100000; n++) {
+			String price = String.format("%." + random.nextInt(8) + "f", random.nextDouble() * Math.pow(10, random.nextInt(8)));
+			ByteBuffer buffer = ByteBuffer.wrap(price.getBytes(StandardCharsets.US_ASCII));
+
+			assertEquals(Double.parseDouble(price), CsvPriceParser.parsePrice(buffer, 0, buffer.limit()), price);
+		}
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = { "1980/1/4", "1980/01/04", "2000/2/29", "1900/12/31", "2019/4/30", "2019/4/31", "0001/1/1" })
+	public void Should_GetSameDateAsDateTimeFormatter(String date) {
+		DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy/M/d");
+		ByteBuffer buffer = ByteBuffer.wrap(date.getBytes(StandardCharsets.US_ASCII));
+
+		assertEquals(LocalDate.parse(date, formatter).toEpochDay(), CsvPriceParser.parseEpochDay(buffer, 0, buffer.limit()));
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = { "1980/13/4", "1980/1/32", "80/1/4", "1980-1-4", "1980/1/4x", "19800/1/4" })
+	public void Should_ThrowException_When_DateIsInvalid(String date) {
+		ByteBuffer buffer = ByteBuffer.wrap(date.getBytes(StandardCharsets.US_ASCII));
+
+		assertThrows(DateTimeParseException.class, () -> CsvPriceParser.parseEpochDay(buffer, 0, buffer.limit()));
+	}
+
+	@ParameterizedTest
+	@MethodSource("csvProvider")
+	public void Should_GetSameSeries_When_MapFileInSmallRegions(Path path) throws IOException {
+		PriceSeries expected = CsvPriceParser.parse(path);
+
+		assertEquals(expected, CsvPriceParser.parse(path, 64, Integer.MAX_VALUE));
+		assertEquals(expected, CsvPriceParser.parse(path, 1000, Integer.MAX_VALUE));
+	}
+
+	@ParameterizedTest
+	@MethodSource("csvProvider")
+	public void Should_GetSameSeries_When_ParseInParallelChunks(Path path) throws IOException {
+		PriceSeries expected = CsvPriceParser.parse(path, Integer.MAX_VALUE, Integer.MAX_VALUE);
+
+		assertEquals(expected, CsvPriceParser.parse(path, Integer.MAX_VALUE, 100));
+		assertEquals(expected, CsvPriceParser.parse(path, 4096, 100));
+	}
+
+	@Test
+	public void Should_GetSortedSeries_When_ParseUnsortedFileInParallelChunks() throws IOException {
+		Path source = Paths.get(CsvPriceParserTest.class.getResource("/stockPrice.csv").getPath());
+		List<String> lines = Files.readAllLines(source);
+		List<String> rows = new ArrayList<>(lines.subList(1, lines.size()));
+		Collections.shuffle(rows, new Random(0));
+		rows.add(0, lines.get(0));
+
+		Path path = Files.createTempFile(null, ".csv");
+		Files.write(path, rows);
+
+		PriceSeries expected = CsvPriceParser.parse(source);
+		PriceSeries actual = CsvPriceParser.parse(path, Integer.MAX_VALUE, 1000);
+		Files.delete(path);
+
+		assertEquals(expected, actual);
+	}
+
+	private static Stream<Arguments> csvProvider() {
+		return Stream.of(
+				Arguments.of(Paths.get(CsvPriceParserTest.class.getResource("/stockPrice.csv").getPath())),
+				Arguments.of(Paths.get(CsvPriceParserTest.class.getResource("/stockPrice2.csv").getPath()))
+			);
+	}
+
+	@Test
+	public void Should_ParseRows_When_LinesEndWithCrLfAndHaveBlanks() throws IOException {
+		Path path = Files.createTempFile(null, ".csv");
+		Files.writeString(path, "Date,Close\r\n1980/1/5 , 561.55 ,x\r\n\r\n1980/1/4,562.65");
+
+		PriceSeries data = CsvPriceParser.parse(path);
+		Files.delete(path);
+
+		assertEquals(2, data.size());
+		assertEquals(LocalDate.of(1980, 1, 4), data.getDate(0));
+		assertEquals(562.65, data.getPrice(0));
+		assertEquals(561.55, data.getPrice(1));
+	}
+
+	@Test
+	public void Should_GetSameSeries_When_LinesEndWithLoneCr() throws IOException {
+		Path source = Paths.get(CsvPriceParserTest.class.getResource("/stockPrice.csv").getPath());
+		Path path = Files.createTempFile(null, ".csv");
+		Files.writeString(path, String.join("\r", Files.readAllLines(source)));
+
+		PriceSeries expected = CsvPriceParser.parse(source);
+		PriceSeries actual = CsvPriceParser.parse(path, 64, 100);
+		Files.writeString(path, "Ticker,Date,Close\rAAA,1980/1/5,2\rBB,1980/1/4,10\r");
+		Map<String, PriceSeries> byTicker = CsvPriceParser.parseByTicker(path, 20);
+		Files.delete(path);
+
+		assertEquals(expected, actual);
+		assertEquals(List.of("AAA", "BB"), new ArrayList<>(byTicker.keySet()));
+	}
+
+	@Test
+	public void Should_GroupRowsByTicker_When_ParseMultiTickerFile() throws IOException {
+		Path path = Files.createTempFile(null, ".csv");
+		Files.writeString(path, "Ticker,Date,Close\nAAA,1980/1/5,2\nAAA , 1980/1/4 ,1\nBB,1980/1/4,10\nAAA,1980/1/7,3\nBB,1980/1/5,20\n");
+
+		Map<String, PriceSeries> data = CsvPriceParser.parseByTicker(path);
+		Map<String, PriceSeries> dataInSmallRegions = CsvPriceParser.parseByTicker(path, 32);
+		Files.delete(path);
+
+		assertEquals(List.of("AAA", "BB"), new ArrayList<>(data.keySet()));
+		assertEquals(new PriceSeries(new int[] { 3655, 3656, 3658 }, new double[] { 1, 2, 3 }), data.get("AAA"));
+		assertEquals(new PriceSeries(new int[] { 3655, 3656 }, new double[] { 10, 20 }), data.get("BB"));
+		assertEquals(data, dataInSmallRegions);
+	}
+
+	@Test
+	public void Should_GetEmptySeries_When_FileHasOnlyHeader() throws IOException {
+		Path path = Files.createTempFile(null, ".csv");
+		Files.writeString(path, "Date,Close");
+
+		PriceSeries data = CsvPriceParser.parse(path);
+		Files.delete(path);
+
+		assertTrue(data.isEmpty());
+	}
+}
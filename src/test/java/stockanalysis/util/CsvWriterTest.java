@@ -0,0 +1,128 @@
+package stockanalysis.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+import stockanalysis.model.Analyzer;
+import stockanalysis.model.CrashCycleMembership;
+import stockanalysis.model.PriceSeries;
+import stockanalysis.model.StockPrice;
+import stockanalysis.model.StockPriceCrashCycle;
+import stockanalysis.model.Tuple;
+
+@EnabledIfSystemProperty(named = "class.test", matches = "CsvWriter|All")
+public class CsvWriterTest {
+
+	private Path expectedPath, actualPath;
+	private Locale locale;
+
+	@BeforeEach
+	public void init() throws IOException {
+		expectedPath = Files.createTempFile(null, ".csv");
+		actualPath = Files.createTempFile(null, ".csv");
+		locale = Locale.getDefault(Locale.Category.FORMAT);
+	}
+
+	@AfterEach
+	public void cleanup() throws IOException {
+		Locale.setDefault(Locale.Category.FORMAT, locale);
+		Files.delete(expectedPath);
+		Files.delete(actualPath);
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = { "en-US", "de-DE", "ar-EG", "hi-IN-u-nu-deva" })
+	public void Should_WriteSameTuplesAsFormatter(String languageTag) throws IOException {
+		Locale.setDefault(Locale.Category.FORMAT, Locale.forLanguageTag(languageTag));
+		List<Tuple> tuples = createTuples();
+
+		Util.saveAnalysisResult(tuples, Util.ANALYSIS_RESULT_CSV_HEADER, Util::convertTuple, expectedPath);
+		Util.saveAnalysisResult(tuples, actualPath);
+
+		assertArrayEquals(Files.readAllBytes(expectedPath), Files.readAllBytes(actualPath));
+	}
+
+	@ParameterizedTest
+	@ValueSource(doubles = { 0.05, 0.1, 0.3 })
+	public void Should_WriteSameCrashCyclesAsFormatter_When_SaveBothTablesInOnePass(double crashRate) throws IOException {
+		Path path = Paths.get(CsvWriterTest.class.getResource("/stockPrice.csv").getPath());
+		PriceSeries data = Util.parseData(path);
+		List<Tuple> tuples = new Analyzer(crashRate, data).getAnalysisResult();
+		Path crashPath = Files.createTempFile(null, ".csv");
+
+		Util.saveCrashCycles(new CrashCycleMembership(data, tuples), actualPath, crashPath);
+		byte[] actualWithCrash = Files.readAllBytes(crashPath);
+		Files.delete(crashPath);
+
+		Util.saveAnalysisResult(toCrashCycles(data, tuples, Tuple::getPeakDate), Util.CRASH_CYCLE_CSV_HEADER, Util::convertStockPriceCrashCycle, expectedPath);
+		assertArrayEquals(Files.readAllBytes(expectedPath), Files.readAllBytes(actualPath));
+
+		Util.saveAnalysisResult(toCrashCycles(data, tuples, Tuple::getCrashDate), Util.CRASH_CYCLE_CSV_HEADER, Util::convertStockPriceCrashCycle, expectedPath);
+		assertArrayEquals(Files.readAllBytes(expectedPath), actualWithCrash);
+	}
+
+	// Checks every tuple for every day, as the crash cycle tables used to
+	private static List<StockPriceCrashCycle> toCrashCycles(PriceSeries data, List<Tuple> tuples, Function<Tuple, LocalDate> start) {
+		List<StockPriceCrashCycle> spccs = new ArrayList<>();
+
+		for (StockPrice sp : data.asList()) {
+			int inCrashCycle = 0;
+
+			for (Tuple tuple : tuples) {
+				LocalDate from = start.apply(tuple);
+				LocalDate to = tuple.getTroughDate();
+
+				if (!to.equals(LocalDate.MIN) && (Util.checkDateIsBetween(from, to, sp.getDate()) || Util.checkDateIsBetween(to, from, sp.getDate()))) {
+					inCrashCycle = 1;
+				}
+			}
+
+			spccs.add(new StockPriceCrashCycle(sp, inCrashCycle));
+		}
+
+		return spccs;
+	}
+
+	private static List<Tuple> createTuples() {
+		List<Tuple> tuples = new ArrayList<>();
+		Random random = new Random(0);
+		double[] prices = { 1.005, 0.125, 2.675, 1e-3, 0, 123456789.125, 1e20, Double.NaN };
+
+		for (int i = 0; i < 5000; i++) {
+			LocalDate peakDate = LocalDate.of(1900 + random.nextInt(200), 1, 1).plusDays(random.nextInt(366));
+			LocalDate troughDate = peakDate.plusDays(random.nextInt(400));
+			LocalDate crashDate = troughDate.minusDays(random.nextInt(30));
+
+			double peak = i < prices.length ? prices[i] : randomPrice(random);
+			double trough = i < prices.length ? -prices[i] : randomPrice(random);
+
+			StockPrice sp1 = new StockPrice(peakDate, peak);
+			StockPrice sp2 = i % 7 == 0 ? StockPrice.DEFAULT_STOCK_PRICE : new StockPrice(troughDate, trough);
+			StockPrice sp3 = new StockPrice(crashDate, random.nextDouble() * 100);
+
+			tuples.add(new Tuple(sp1, sp2, sp3));
+		}
+
+		return tuples;
+	}
+
+	private static double randomPrice(Random random) {
+		return Math.round(random.nextDouble() * Math.pow(10, random.nextInt(8))) / Math.pow(10, random.nextInt(5));
+	}
+}
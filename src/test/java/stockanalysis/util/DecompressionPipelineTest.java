@@ -0,0 +1,102 @@
+package stockanalysis.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.github.luben.zstd.ZstdOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import stockanalysis.model.PriceSeries;
+
+@EnabledIfSystemProperty(named = "class.test", matches = "DecompressionPipeline|All")
+public class DecompressionPipelineTest {
+
+	private Path source, gzip, zstd;
+
+	@BeforeEach
+	public void init() throws IOException {
+		source = Paths.get(DecompressionPipelineTest.class.getResource("/stockPrice2.csv").getPath());
+		gzip = Files.createTempFile(null, ".csv.gz");
+		zstd = Files.createTempFile(null, ".csv.zst");
+
+		try(OutputStream out = new GZIPOutputStream(Files.newOutputStream(gzip))) {
+			Files.copy(source, out);
+		}
+		try(OutputStream out = new ZstdOutputStream(Files.newOutputStream(zstd))) {
+			Files.copy(source, out);
+		}
+	}
+
+	@AfterEach
+	public void cleanup() throws IOException {
+		Files.delete(gzip);
+		Files.delete(zstd);
+	}
+
+	@Test
+	public void Should_DetectCompressedFilesByMagicNumber() throws IOException {
+		assertTrue(DecompressionPipeline.isCompressed(gzip));
+		assertTrue(DecompressionPipeline.isCompressed(zstd));
+		assertFalse(DecompressionPipeline.isCompressed(source));
+	}
+
+	@Test
+	public void Should_GetSameSeriesAsUncompressedFile_When_ParseCompressedFile() throws IOException {
+		PriceSeries expected = CsvPriceParser.parse(source);
+
+		assertEquals(expected, CsvPriceParser.parse(gzip));
+		assertEquals(expected, CsvPriceParser.parse(zstd));
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = { 1, 7, 40, 4096 })
+	public void Should_GetSameSeries_When_LinesAreSplitBetweenBuffers(int bufferSize) throws IOException {
+		PriceSeries.Builder builder = PriceSeries.builder();
+		DecompressionPipeline.forEachBlock(gzip, bufferSize, (buffer, from, to) -> CsvPriceParser.parseLines(buffer, from, to, builder));
+
+		assertEquals(CsvPriceParser.parse(source), builder.build());
+	}
+
+	@Test
+	public void Should_ThrowIOException_When_CompressedFileIsTruncated() throws IOException {
+		byte[] bytes = Files.readAllBytes(gzip);
+		Files.write(gzip, Arrays.copyOf(bytes, bytes.length / 2));
+
+		assertThrows(IOException.class, () -> CsvPriceParser.parse(gzip));
+	}
+
+	@Test
+	public void Should_ThrowIOException_When_InflaterFailsWithRuntimeError() {
+		DecompressionPipeline.Source failing = () -> new InputStream() {
+			@Override
+			public int read() {
+				throw new IllegalStateException("Broken decoder");
+			}
+		};
+
+		IOException e = assertTimeoutPreemptively(Duration.ofSeconds(10),
+			() -> assertThrows(IOException.class, () -> DecompressionPipeline.forEachBlock(failing, 16, (buffer, from, to) -> {})));
+		assertTrue(e.getCause() instanceof IllegalStateException);
+
+		DecompressionPipeline.Source missingLibrary = () -> {
+			throw new UnsatisfiedLinkError("no zstd-jni in java.library.path");
+		};
+		e = assertTimeoutPreemptively(Duration.ofSeconds(10),
+			() -> assertThrows(IOException.class, () -> DecompressionPipeline.forEachBlock(missingLibrary, 16, (buffer, from, to) -> {})));
+		assertTrue(e.getCause() instanceof UnsatisfiedLinkError);
+	}
+}
@@ -0,0 +1,98 @@
+package stockanalysis.util;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.stream.DoubleStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+import stockanalysis.model.Analyzer;
+import stockanalysis.model.PriceSeries;
+import stockanalysis.model.Tuple;
+
+@EnabledIfSystemProperty(named = "class.test", matches = "Downsampler|All")
+public class DownsamplerTest {
+
+	@Test
+	public void Should_KeepEveryDay_When_RangeFitsBudget() {
+		PriceSeries.Builder builder = PriceSeries.builder();
+		DoubleStream.of(1, 2, 3, 4, 5, 6).forEach(price -> builder.add(builder.size(), price));
+		PriceSeries data = builder.build();
+
+		assertArrayEquals(new int[] { 1, 2, 3, 4 }, Downsampler.downsample(data, 1, 5, 4));
+		assertArrayEquals(new int[0], Downsampler.downsample(data, 3, 3, 4));
+	}
+
+	@Test
+	public void Should_KeepSpikes_When_RangeIsFlat() {
+		double[] prices = new double[1000];
+		prices[123] = 50;
+		prices[777] = -50;
+
+		PriceSeries.Builder builder = PriceSeries.builder();
+		DoubleStream.of(prices).forEach(price -> builder.add(builder.size(), price));
+		int[] indices = Downsampler.downsample(builder.build(), 0, prices.length, 10);
+
+		assertEquals(10, indices.length);
+		assertEquals(0, indices[0]);
+		assertEquals(prices.length - 1, indices[indices.length - 1]);
+		assertTrue(Arrays.stream(indices).anyMatch(i -> i == 123));
+		assertTrue(Arrays.stream(indices).anyMatch(i -> i == 777));
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = { 3, 50, 500 })
+	public void Should_KeepPeaksAndTroughs(int budget) {
+		Path path = Paths.get(DownsamplerTest.class.getResource("/stockPrice2.csv").getPath());
+		PriceSeries data = Util.parseData(path);
+		List<Tuple> tuples = new Analyzer(0.1, data).getAnalysisResult();
+
+		BitSet peaks = new BitSet();
+		BitSet troughs = new BitSet();
+		tuples.forEach(tuple -> {
+			peaks.set(tuple.getPeakIndex());
+			if (tuple.getTroughIndex() >= 0) {
+				troughs.set(tuple.getTroughIndex());
+			}
+		});
+
+		int from = data.size() / 4;
+		int to = data.size() - 1;
+		int[] indices = Downsampler.downsample(data, from, to, budget, peaks, troughs);
+
+		BitSet kept = new BitSet();
+		Arrays.stream(indices).forEach(kept::set);
+		for (int i = 1; i < indices.length; i++) {
+			assertTrue(indices[i - 1] < indices[i]);
+		}
+
+		BitSet expected = new BitSet();
+		expected.or(peaks);
+		expected.or(troughs);
+		expected.clear(0, from);
+		expected.clear(to, Math.max(to, expected.length()));
+		expected.andNot(kept);
+
+		assertTrue(expected.isEmpty());
+		assertEquals(from, indices[0]);
+		assertEquals(to - 1, indices[indices.length - 1]);
+		assertTrue(indices.length <= Math.max(budget, peaks.cardinality() + troughs.cardinality() + 3));
+	}
+
+	@Test
+	public void Should_ThrowException_When_BudgetIsTooSmall() {
+		PriceSeries.Builder builder = PriceSeries.builder();
+		DoubleStream.of(1, 2, 3, 4).forEach(price -> builder.add(builder.size(), price));
+		PriceSeries data = builder.build();
+
+		assertThrows(IllegalArgumentException.class, () -> Downsampler.downsample(data, 0, 4, 2));
+		assertThrows(IndexOutOfBoundsException.class, () -> Downsampler.downsample(data, 0, 5, 3));
+	}
+}
@@ -0,0 +1,58 @@
+package stockanalysis.util;
+
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@EnabledIfSystemProperty(named = "class.test", matches = "EpochDayConverter|All")
+public class EpochDayConverterTest {
+
+	@Test
+	public void Should_FormatLikeDateFormatter() {
+		EpochDayConverter converter = new EpochDayConverter();
+
+		for (LocalDate date : new LocalDate[] { LocalDate.of(1962, 1, 2), LocalDate.of(2019, 12, 30), LocalDate.of(2020, 6, 15) }) {
+			assertEquals(date.format(Util.DATE_FORMATTER), converter.toString(date.toEpochDay()));
+		}
+	}
+
+	@Test
+	public void Should_LabelNearestDay_When_TickIsBetweenDays() {
+		EpochDayConverter converter = new EpochDayConverter();
+		long epochDay = LocalDate.of(2020, 6, 15).toEpochDay();
+
+		assertEquals(converter.toString(epochDay), converter.toString(epochDay + 0.4));
+		assertEquals(converter.toString(epochDay + 1), converter.toString(epochDay + 0.6));
+	}
+
+	@Test
+	public void Should_ReuseLabel_When_TickIsFormattedAgain() {
+		EpochDayConverter converter = new EpochDayConverter();
+		String label = converter.toString(18000);
+
+		assertSame(label, converter.toString(18000.0));
+
+		// Enough other ticks to drop the label once
+		for (int day = 0; day < 2000; day++) {
+			converter.toString(day);
+		}
+		assertNotSame(label, converter.toString(18000));
+		assertEquals(label, converter.toString(18000));
+		assertEquals("", converter.toString(null));
+	}
+
+	@Test
+	public void Should_ParseLabelBackToEpochDay() {
+		EpochDayConverter converter = new EpochDayConverter();
+
+		// The week based year of the label differs around new year
+		for (LocalDate date : new LocalDate[] { LocalDate.of(1962, 1, 2), LocalDate.of(2019, 12, 30), LocalDate.of(2021, 1, 2), LocalDate.of(2020, 6, 15) }) {
+			long epochDay = date.toEpochDay();
+			assertEquals((double) epochDay, converter.fromString(converter.toString(epochDay)));
+		}
+		assertNull(converter.fromString(""));
+	}
+}
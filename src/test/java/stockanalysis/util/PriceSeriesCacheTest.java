@@ -0,0 +1,115 @@
+package stockanalysis.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import static org.junit.jupiter.api.Assertions.*;
+import stockanalysis.model.PriceSeries;
+
+@EnabledIfSystemProperty(named = "class.test", matches = "PriceSeriesCache|All")
+public class PriceSeriesCacheTest {
+
+	private Path dir, source, cache;
+
+	@BeforeEach
+	public void init() throws IOException {
+		dir = Files.createTempDirectory(null);
+		source = dir.resolve("stockPrice.csv");
+		cache = PriceSeriesCache.getCachePath(source);
+
+		Path csv = Paths.get(PriceSeriesCacheTest.class.getResource("/stockPrice.csv").getPath());
+		Files.copy(csv, source);
+	}
+
+	@AfterEach
+	public void cleanup() throws IOException {
+		try(var files = Files.list(dir)) {
+			for (Path file : (Iterable<Path>) files::iterator) {
+				Files.delete(file);
+			}
+		}
+		Files.delete(dir);
+	}
+
+	@Test
+	public void Should_WriteSidecar_When_LoadCsvFirstTime() throws IOException {
+		PriceSeries data = PriceSeriesCache.load(source);
+
+		assertTrue(Files.exists(cache));
+		assertEquals(CsvPriceParser.parse(source), data);
+	}
+
+	@Test
+	public void Should_ReadSidecar_When_CsvIsUnchanged() throws IOException {
+		PriceSeries expected = PriceSeriesCache.load(source);
+
+		// Replace the CSV without changing its size and time, only the sidecar can give the same series
+		FileTime time = Files.getLastModifiedTime(source);
+		byte[] bytes = Files.readAllBytes(source);
+		Files.write(source, new String(bytes).replace("562.65", "999.99").getBytes());
+		Files.setLastModifiedTime(source, time);
+
+		assertEquals(expected, PriceSeriesCache.load(source));
+	}
+
+	@Test
+	public void Should_ParseCsvAgain_When_CsvIsChanged() throws IOException {
+		PriceSeriesCache.load(source);
+
+		Files.writeString(source, "1980/1/3,500\n", StandardOpenOption.APPEND);
+		PriceSeries data = PriceSeriesCache.load(source);
+
+		assertEquals(500, data.getPrice(0));
+		assertEquals(CsvPriceParser.parse(source), data);
+	}
+
+	@Test
+	public void Should_ReplaceSidecarAndLeaveNoTempFile_When_SidecarWasRead() throws IOException {
+		PriceSeriesCache.load(source);
+		PriceSeriesCache.load(source);
+
+		Files.writeString(source, "1980/1/3,500\n", StandardOpenOption.APPEND);
+		PriceSeries data = PriceSeriesCache.load(source);
+
+		assertEquals(data, PriceSeriesCache.read(cache, Files.readAttributes(source, BasicFileAttributes.class)));
+		try(var files = Files.list(dir)) {
+			assertEquals(2, files.count());
+		}
+	}
+
+	@Test
+	public void Should_ParseCsvAgain_When_SidecarIsDamaged() throws IOException {
+		PriceSeries expected = PriceSeriesCache.load(source);
+
+		try(FileChannel channel = FileChannel.open(cache, StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.wrap(new byte[] { 1, 2, 3 }), 100);
+		}
+		assertNull(PriceSeriesCache.read(cache, Files.readAttributes(source, BasicFileAttributes.class)));
+		assertEquals(expected, PriceSeriesCache.load(source));
+
+		Files.copy(source, cache, StandardCopyOption.REPLACE_EXISTING);
+		assertEquals(expected, PriceSeriesCache.load(source));
+	}
+
+	@Test
+	public void Should_ParseCsv_When_SidecarCantBeRead() throws IOException {
+		Files.createDirectory(cache);
+
+		assertNull(PriceSeriesCache.read(cache, Files.readAttributes(source, BasicFileAttributes.class)));
+		assertEquals(CsvPriceParser.parse(source), PriceSeriesCache.load(source));
+		assertTrue(Files.isDirectory(cache));
+	}
+}
@@ -13,6 +13,7 @@ import java.nio.file.attribute.PosixFilePermissions;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Stream;
@@ -32,6 +33,7 @@ import com.google.common.jimfs.Jimfs;
 
 import static java.nio.file.attribute.PosixFilePermission.*;
 import static org.junit.jupiter.api.Assertions.*;
+import stockanalysis.model.PriceSeries;
 import stockanalysis.model.StockPrice;
 import stockanalysis.model.Tuple;
 
@@ -41,10 +43,10 @@ public class UtilTest {
     @ParameterizedTest 
 	@MethodSource("csvPathProvider")
 	public void Should_GetSortedStockPrice_When_ParseFromCsvFile(Path path, List<StockPrice> expected) {
-		List<StockPrice> data = Util.parseData(path);
+		PriceSeries data = Util.parseData(path);
 
-		assertEquals(expected, data);
-		assertThrows(UnsupportedOperationException.class, () -> data.add(new StockPrice(LocalDate.now(), 0)));
+		assertEquals(expected, data.asList());
+		assertThrows(UnsupportedOperationException.class, () -> data.asList().add(new StockPrice(LocalDate.now(), 0)));
 	}
 
 	private static Stream<Arguments> csvPathProvider() {
@@ -66,7 +68,7 @@ public class UtilTest {
 	@Test
 	public void Should_GetNullData_When_ParseCsvFileNotExisting() {
 		Path path = Paths.get("/foo/bar");
-		List<StockPrice> data = Util.parseData(path);
+		PriceSeries data = Util.parseData(path);
 
 		assertNull(data);
 	}
@@ -161,6 +163,18 @@ public class UtilTest {
 		assertEquals(expected, actual);
 	}
 
+	@Test
+	public void Should_LeaveOutUnknownIndices_When_GroupPeaksTroughs() {
+		StockPrice sp1 = new StockPrice(LocalDate.of(1980, 1, 1), 500);
+		StockPrice sp2 = new StockPrice(LocalDate.of(1980, 1, 2), 400);
+		StockPrice sp3 = new StockPrice(LocalDate.of(1980, 1, 3), 200);
+
+		BitSet[] peakTroughs = Util.groupPeaksTroughs(Arrays.asList(new Tuple(sp1, sp2, sp3), new Tuple(sp1, sp2, sp3, 4, 6, 7)));
+
+		assertEquals(BitSet.valueOf(new long[] { 1L << 4 }), peakTroughs[0]);
+		assertEquals(BitSet.valueOf(new long[] { 1L << 6 }), peakTroughs[1]);
+	}
+
 	@EnabledOnOs(OS.LINUX)
 	@Test
 	public void Should_PrintIOExceptionStacktrace_When_SaveAnalysisResultAtReadOnlyDirectory() {
@@ -0,0 +1,54 @@
+package stockanalysis.view;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@EnabledIfSystemProperty(named = "class.test", matches = "CanvasPriceChart|All")
+public class CanvasPriceChartTest {
+
+	private static final double PLOT_WIDTH = 400;
+
+	@Test
+	public void Should_MapDaysToPlotAndBack() {
+		double left = CanvasPriceChart.toX(10, 10, 111, PLOT_WIDTH);
+
+		assertEquals(left + PLOT_WIDTH, CanvasPriceChart.toX(110, 10, 111, PLOT_WIDTH));
+		assertEquals(60, CanvasPriceChart.toIndex(CanvasPriceChart.toX(60, 10, 111, PLOT_WIDTH), 10, 111, PLOT_WIDTH), 1e-9);
+		assertArrayEquals(new int[] { 59, 64 }, CanvasPriceChart.getHitRange(CanvasPriceChart.toX(61, 10, 111, PLOT_WIDTH), 10, 111, PLOT_WIDTH));
+	}
+
+	@Test
+	public void Should_HitNoDay_When_SeriesIsEmpty() {
+		double middle = CanvasPriceChart.toX(0, 0, 0, PLOT_WIDTH);
+
+		assertTrue(Double.isFinite(middle));
+		assertEquals(0, CanvasPriceChart.toIndex(middle, 0, 0, PLOT_WIDTH));
+		assertArrayEquals(new int[] { 0, 0 }, CanvasPriceChart.getHitRange(middle, 0, 0, PLOT_WIDTH));
+	}
+
+	@Test
+	public void Should_DrawDayInMiddle_When_ViewHasOneDay() {
+		double left = CanvasPriceChart.toX(0, 0, 2, PLOT_WIDTH);
+		double middle = CanvasPriceChart.toX(5, 5, 6, PLOT_WIDTH);
+
+		assertEquals(left + PLOT_WIDTH / 2, middle);
+		assertEquals(5, CanvasPriceChart.toIndex(left, 5, 6, PLOT_WIDTH));
+		assertArrayEquals(new int[] { 5, 6 }, CanvasPriceChart.getHitRange(middle, 5, 6, PLOT_WIDTH));
+	}
+
+	@Test
+	public void Should_HitLastDay_When_MouseIsInLastPixelColumn() {
+		double right = CanvasPriceChart.toX(999, 0, 1000, PLOT_WIDTH);
+		int[] range = CanvasPriceChart.getHitRange(right - 0.5, 0, 1000, PLOT_WIDTH);
+
+		assertEquals(999, CanvasPriceChart.toIndex(right, 0, 1000, PLOT_WIDTH), 1e-9);
+		assertEquals(1000, range[1]);
+		assertTrue(range[0] < 999);
+
+		// Right of the plot no day is hit
+		int[] outside = CanvasPriceChart.getHitRange(right + 100, 0, 1000, PLOT_WIDTH);
+		assertEquals(outside[0], outside[1]);
+	}
+}